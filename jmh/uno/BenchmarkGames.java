@@ -0,0 +1,106 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Games in realistic states for the benchmarks, reached by playing random
+ * legal moves from a fixed seed.
+ */
+final class BenchmarkGames {
+    /**
+     * Number of seeds tried by {@code find} before giving up.
+     */
+    private static final int MAX_ATTEMPTS = 1000;
+    /**
+     * Number of moves played from each seed by {@code find}, since a
+     * round where everyone draws may never end.
+     */
+    private static final int MAX_MOVES = 2000;
+
+    private BenchmarkGames() {
+    }
+
+    /**
+     * Start a round and play random legal moves of the active player.
+     *
+     * @param numPlayers number of players
+     * @param seed       seed of the game and of the moves
+     * @param numMoves   number of moves to play, unless the round ends first
+     * @return the game
+     */
+    static Game midRound(int numPlayers, long seed, int numMoves) {
+        Game game = new Game(numPlayers, new SnapshotRandom(seed));
+        game.startRound();
+        playRandomMoves(game, new Random(seed), numMoves);
+        return game;
+    }
+
+    /**
+     * Find a game in a state by playing random rounds from consecutive
+     * seeds until one passes through the state.
+     *
+     * @param numPlayers number of players
+     * @param seed       first seed to try
+     * @param drawFirst  whether to draw whenever possible, which empties the
+     *                   draw pile quickly
+     * @param condition  the state to look for
+     * @return the first game found in the state
+     * @throws IllegalStateException if no game is found
+     */
+    static Game find(int numPlayers, long seed, boolean drawFirst,
+                     @NotNull Predicate<Game> condition) {
+        int[] actions = new int[GameAction.MAX_ACTIONS];
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Random random = new Random(seed + attempt);
+            Game game =
+                new Game(numPlayers, new SnapshotRandom(seed + attempt));
+            game.startRound();
+            for (int move = 0; move < MAX_MOVES
+                && game.getState() != GameState.ROUND_OVER; move++) {
+                if (condition.test(game)) {
+                    return game;
+                }
+                int count =
+                    game.getLegalActions(game.getActivePlayer(), actions);
+                if (count == 0) {
+                    break;
+                }
+                int action = actions[random.nextInt(count)];
+                for (int i = 0; drawFirst && i < count; i++) {
+                    if (GameAction.type(actions[i]) == GameAction.DRAW_CARD) {
+                        action = actions[i];
+                    }
+                }
+                game.apply(action);
+            }
+        }
+        throw new IllegalStateException("No game found.");
+    }
+
+    /**
+     * Play random legal moves of the active player until the round ends.
+     *
+     * @param game   game with a round in progress
+     * @param random source of the moves
+     * @param limit  maximum number of moves to play
+     * @return the number of moves played
+     */
+    static int playRandomMoves(@NotNull Game game, @NotNull Random random,
+                               int limit) {
+        int[] actions = new int[GameAction.MAX_ACTIONS];
+        int numMoves = 0;
+        while (numMoves < limit && game.getState() != GameState.ROUND_OVER) {
+            int count =
+                game.getLegalActions(game.getActivePlayer(), actions);
+            if (count == 0) {
+                break;
+            }
+            game.apply(actions[random.nextInt(count)]);
+            numMoves++;
+        }
+        return numMoves;
+    }
+}
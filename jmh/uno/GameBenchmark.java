@@ -0,0 +1,149 @@
+package uno;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations of the rules engine. Each benchmark that changes a game works
+ * on a fresh copy of a prepared one, so {@code copyGame} is the part of
+ * their cost that is not the operation itself. The {@code jmh} task runs
+ * with {@code -prof gc}, which adds the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"2", "4", "10"})
+    public int numPlayers;
+
+    private Random random;
+    /**
+     * A game before its first round.
+     */
+    private Game newGame;
+    /**
+     * A game where the active player can play a card without ending the
+     * round.
+     */
+    private Game playing;
+    /**
+     * A game where the active player can draw from an empty draw pile, so
+     * the discard pile is shuffled back into it.
+     */
+    private Game emptyDrawPile;
+    /**
+     * A game where the active player decides whether to challenge a draw
+     * four.
+     */
+    private Game drawFour;
+    private Hand hand;
+    private DiscardPile discardPile;
+    private List<Card> playableCards;
+
+    @Setup
+    public void setUp() {
+        random = new SnapshotRandom(SEED);
+        newGame = new Game(numPlayers, new SnapshotRandom(SEED));
+        playing = BenchmarkGames.find(numPlayers, SEED, false,
+            game -> game.getState() == GameState.PLAY_CARD
+                && game.getNumPlayableCards() > 0
+                && game.getHandSize(game.getActivePlayer()) > 2);
+        emptyDrawPile = BenchmarkGames.find(numPlayers, SEED, true,
+            game -> game.getDrawPileSize() == 0
+                && game.getDiscardPileSize() > 1
+                && game.validate(game.getActivePlayer(),
+                GameAction.of(GameAction.DRAW_CARD)) == MoveResult.OK);
+        drawFour = BenchmarkGames.find(numPlayers, SEED, false,
+            game -> game.getState() == GameState.CHALLENGE_DRAW_FOUR);
+        hand = new Hand();
+        for (Card card : playing.getHand(playing.getActivePlayer())) {
+            hand.add(card);
+        }
+        discardPile = new DiscardPile();
+        discardPile.add(playing.getTopCard());
+        playableCards = new ArrayList<>();
+    }
+
+    @Benchmark
+    public Game copyGame() {
+        return new Game(playing, random);
+    }
+
+    /**
+     * Shuffling, dealing and flipping the first card.
+     */
+    @Benchmark
+    public Game startRound() {
+        Game game = new Game(newGame, random);
+        game.startRound();
+        return game;
+    }
+
+    @Benchmark
+    public Game playCard() {
+        Game game = new Game(playing, random);
+        game.playCard(0);
+        return game;
+    }
+
+    @Benchmark
+    public Game drawCardWithReplenish() {
+        Game game = new Game(emptyDrawPile, random);
+        game.drawCard();
+        return game;
+    }
+
+    /**
+     * What the game does at the start of each turn.
+     */
+    @Benchmark
+    public int updatePlayableCards() {
+        playableCards.clear();
+        hand.getPlayableCards(discardPile, playableCards);
+        return playableCards.size();
+    }
+
+    @Benchmark
+    public Game challengeDrawFour() {
+        Game game = new Game(drawFour, random);
+        game.challengeDrawFour(true);
+        return game;
+    }
+
+    @Benchmark
+    public Game acceptDrawFour() {
+        Game game = new Game(drawFour, random);
+        game.challengeDrawFour(false);
+        return game;
+    }
+
+    /**
+     * A whole round where every move is chosen at random.
+     */
+    @Benchmark
+    public Game randomRound() {
+        Game game = new Game(newGame, random);
+        game.startRound();
+        BenchmarkGames.playRandomMoves(game, random, Integer.MAX_VALUE);
+        return game;
+    }
+}
@@ -0,0 +1,79 @@
+package uno;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of keeping a game in a {@code GameStore} between moves: taking
+ * it out as a {@code Game}, and putting it back after a move. Compare
+ * {@code playCard} with {@code GameBenchmark.playCard}, which copies a
+ * resident game instead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStoreBenchmark {
+    private static final long SEED = 42;
+
+    @Param({"2", "4", "10"})
+    public int numPlayers;
+
+    private GameStore store;
+    /**
+     * Row of a game where the active player can play a card without ending
+     * the round.
+     */
+    private int playing;
+    /**
+     * Row the games after a move are put in, so {@code playing} is left as
+     * it was.
+     */
+    private int scratch;
+
+    @Setup
+    public void setUp() {
+        Game game = BenchmarkGames.find(numPlayers, SEED, false,
+            g -> g.getState() == GameState.PLAY_CARD
+                && g.getNumPlayableCards() > 0
+                && g.getHandSize(g.getActivePlayer()) > 2);
+        store = new GameStore(numPlayers);
+        playing = store.add(game);
+        scratch = store.add(game);
+    }
+
+    @Benchmark
+    public Game get() {
+        return store.get(playing);
+    }
+
+    @Benchmark
+    public int getAndPut() {
+        store.put(scratch, store.get(playing));
+        return scratch;
+    }
+
+    /**
+     * A whole move of a game kept in the store.
+     */
+    @Benchmark
+    public int playCard() {
+        Game game = store.get(playing);
+        game.playCard(0);
+        store.put(scratch, game);
+        return scratch;
+    }
+}
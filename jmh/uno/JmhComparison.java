@@ -0,0 +1,140 @@
+package uno;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares JMH results in JSON form with a stored baseline. Prints the
+ * score and the bytes allocated per operation of each benchmark in both,
+ * and exits with status 1 if any score got worse by more than the
+ * threshold.
+ */
+public class JmhComparison {
+    /**
+     * Default change in score, in percent, counted as a regression.
+     */
+    private static final double DEFAULT_THRESHOLD = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println(
+                "Usage: JmhComparison <baseline> <results> [threshold %]");
+            System.exit(2);
+        }
+        Path baselineFile = Path.of(args[0]);
+        if (!Files.exists(baselineFile)) {
+            System.out.println("No baseline at " + baselineFile
+                + "; store one with the jmhBaseline task.");
+            System.exit(2);
+        }
+        double threshold = (args.length > 2)
+            ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD;
+        Map<String, Result> baseline = read(baselineFile);
+        Map<String, Result> results = read(Path.of(args[1]));
+        int numRegressions = 0;
+        System.out.printf("%-60s %14s %14s %8s %10s %10s%n", "Benchmark",
+            "Baseline", "Current", "Change", "B/op was", "B/op now");
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            Result current = entry.getValue();
+            Result old = baseline.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("%-60s %14s %14.1f %8s %10s %10.0f%n",
+                    entry.getKey(), "-", current.score(), "new", "-",
+                    current.bytesPerOp());
+                continue;
+            }
+            double change = 100 * (current.score() - old.score())
+                / old.score();
+            // for times per operation, a higher score is worse
+            double worsening = current.unit().endsWith("/op")
+                ? change : -change;
+            boolean isRegression = worsening > threshold;
+            if (isRegression) {
+                numRegressions++;
+            }
+            System.out.printf("%-60s %14.1f %14.1f %+7.1f%% %10.0f %10.0f%s%n",
+                entry.getKey(), old.score(), current.score(), change,
+                old.bytesPerOp(), current.bytesPerOp(),
+                isRegression ? "  REGRESSION" : "");
+        }
+        System.out.println(numRegressions + " regressions beyond "
+            + threshold + "%.");
+        if (numRegressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read a JMH result file.
+     *
+     * @param file the file
+     * @return the results, by benchmark name and parameters
+     * @throws IOException if the file cannot be read
+     */
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        JsonArray runs;
+        try (Reader reader = Files.newBufferedReader(file)) {
+            runs = JsonParser.parseReader(reader).getAsJsonArray();
+        }
+        for (JsonElement element : runs) {
+            JsonObject run = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(
+                run.get("benchmark").getAsString().replace("uno.", ""));
+            if (run.has("params")) {
+                Map<String, String> params = new TreeMap<>();
+                run.getAsJsonObject("params").entrySet().forEach(param ->
+                    params.put(param.getKey(), param.getValue().getAsString()));
+                key.append(params);
+            }
+            JsonObject primary = run.getAsJsonObject("primaryMetric");
+            results.put(key.toString(), new Result(
+                primary.get("score").getAsDouble(),
+                primary.get("scoreUnit").getAsString(),
+                bytesPerOp(run)));
+        }
+        return results;
+    }
+
+    /**
+     * @param run a JMH run
+     * @return the bytes allocated per operation measured by the gc
+     * profiler, or NaN if the run was not profiled
+     */
+    private static double bytesPerOp(JsonObject run) {
+        JsonObject secondary = run.getAsJsonObject("secondaryMetrics");
+        if (secondary == null) {
+            return Double.NaN;
+        }
+        // older versions of JMH prefix the profiler's metrics with a
+        // middle dot
+        for (String name : new String[]{"gc.alloc.rate.norm",
+            "\u00b7gc.alloc.rate.norm"}) {
+            if (secondary.has(name)) {
+                return secondary.getAsJsonObject(name).get("score")
+                    .getAsDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Result of one benchmark.
+     *
+     * @param score      the primary score
+     * @param unit       unit of the score
+     * @param bytesPerOp bytes allocated per operation, or NaN if unknown
+     */
+    private record Result(double score, String unit, double bytesPerOp) {
+    }
+}
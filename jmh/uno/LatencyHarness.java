@@ -0,0 +1,364 @@
+package uno;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end latency harness. Plays games from fixed seeds between
+ * scripted clients and servers on loopback, and reports the latency each
+ * client sees in each phase of a turn:
+ * <ul>
+ *     <li>move: from a move to the game data it causes, which covers the
+ *     server applying the move and sending the game data
+ *     <li>move (uncorrected): the same, from when the move was actually
+ *     sent
+ *     <li>confirm: from game data to the start message, which covers the
+ *     server waiting for every confirmation and sending the start
+ * </ul>
+ *
+ * <p>The moves of each table are scheduled at a fixed rate, and a move's
+ * latency is measured from when it was scheduled rather than from when it
+ * was sent. A client held up by a slow server sends its moves late, and
+ * the corrected latency includes that wait, so stalls are not hidden by
+ * coordinated omission.
+ *
+ * <p>Arguments are key=value pairs: tables (tables played at once),
+ * players (per table), rate (moves per second per table), games (per
+ * table), warmup (games per table played before measuring), seed (of the
+ * first game) and out (file to write the report to as JSON).
+ */
+public class LatencyHarness {
+    private static final Gson GSON = new Gson();
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("tables", "4");
+        options.put("players", "4");
+        options.put("rate", "100");
+        options.put("games", "1");
+        options.put("warmup", "1");
+        options.put("seed", "1");
+        options.put("out", "");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals == -1
+                || !options.containsKey(arg.substring(0, equals))) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        int numTables = Integer.parseInt(options.get("tables"));
+        int numPlayers = Integer.parseInt(options.get("players"));
+        double rate = Double.parseDouble(options.get("rate"));
+        int numGames = Integer.parseInt(options.get("games"));
+        int numWarmupGames = Integer.parseInt(options.get("warmup"));
+        long seed = Long.parseLong(options.get("seed"));
+
+        runTables(numTables, numPlayers, rate, numWarmupGames,
+            seed - (long) numTables * numWarmupGames, new Phases());
+        Phases phases = new Phases();
+        long start = System.nanoTime();
+        runTables(numTables, numPlayers, rate, numGames, seed, phases);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        JsonObject report = new JsonObject();
+        JsonObject config = new JsonObject();
+        options.forEach((key, value) -> {
+            if (!key.equals("out")) {
+                config.addProperty(key, value);
+            }
+        });
+        config.addProperty("java", System.getProperty("java.version"));
+        report.add("config", config);
+        report.addProperty("seconds", seconds);
+        JsonObject phasesJson = new JsonObject();
+        phases.byName().forEach((name, histogram) ->
+            phasesJson.add(name, summarize(histogram)));
+        report.add("phases", phasesJson);
+        print(report);
+        if (!options.get("out").isEmpty()) {
+            try (Writer writer =
+                     Files.newBufferedWriter(Path.of(options.get("out")))) {
+                new GsonBuilder().setPrettyPrinting().create()
+                    .toJson(report, writer);
+            }
+        }
+    }
+
+    /**
+     * Play games on several tables at once.
+     *
+     * @param numTables  number of tables
+     * @param numPlayers number of players at each table
+     * @param rate       moves per second at each table
+     * @param numGames   number of games each table plays in turn
+     * @param seed       seed of the first game; each game has the next
+     * @param phases     histograms to record the latencies in
+     */
+    private static void runTables(int numTables, int numPlayers, double rate,
+                                  int numGames, long seed, Phases phases)
+        throws Exception {
+        ExecutorService tables = Executors.newFixedThreadPool(numTables);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numTables; t++) {
+            long firstSeed = seed + (long) t * numGames;
+            futures.add(tables.submit(() -> {
+                for (int g = 0; g < numGames; g++) {
+                    playGame(numPlayers, rate, firstSeed + g, phases);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        tables.shutdown();
+    }
+
+    /**
+     * Play a game between scripted clients on a server on loopback.
+     *
+     * @param numPlayers number of players
+     * @param rate       moves per second
+     * @param seed       seed of the game
+     * @param phases     histograms to record the latencies in
+     */
+    private static void playGame(int numPlayers, double rate, long seed,
+                                 Phases phases) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(numPlayers);
+        List<Socket> connections = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        Schedule schedule = new Schedule(rate);
+        try (ServerSocket serverSocket = new ServerSocket(0, numPlayers,
+            InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < numPlayers; i++) {
+                futures.add(clients.submit(() -> {
+                    try (Socket socket = new Socket(
+                        InetAddress.getLoopbackAddress(),
+                        serverSocket.getLocalPort())) {
+                        socket.setTcpNoDelay(true);
+                        playClient(socket, schedule, phases);
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < numPlayers; i++) {
+                Socket connection = serverSocket.accept();
+                connection.setTcpNoDelay(true);
+                connections.add(connection);
+            }
+        }
+        UnoServer server = new UnoServer(numPlayers, 0, new HeuristicBot(),
+            connections, seed);
+        try {
+            server.startAsync().join();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            for (Socket connection : connections) {
+                connection.close();
+            }
+            clients.shutdown();
+        }
+    }
+
+    /**
+     * Play a game as a client that always makes the first move it can,
+     * recording the latencies it sees.
+     *
+     * @param socket   connection to the server
+     * @param schedule schedule of the table's moves
+     * @param phases   histograms to record the latencies in
+     */
+    private static void playClient(Socket socket, Schedule schedule,
+                                   Phases phases) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream()));
+        PrintWriter writer = new PrintWriter(socket.getOutputStream(), true);
+        int id = GSON.fromJson(reader.readLine(), JsonObject.class)
+            .get("id").getAsInt();
+        writer.println("{\"name\":\"Client " + (id + 1) + "\"}");
+        reader.readLine();
+        writer.println("{\"move\":\"confirm\"}");
+        GameData data = null;
+        long lastGameData = 0;
+        long scheduled = 0;
+        long sent = 0;
+        boolean awaitingMove = false;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            long now = System.nanoTime();
+            JsonObject json = GSON.fromJson(line, JsonObject.class);
+            switch (json.get("type").getAsString()) {
+            case "game" -> {
+                if (awaitingMove) {
+                    phases.move.record(now - scheduled);
+                    phases.moveUncorrected.record(now - sent);
+                    awaitingMove = false;
+                }
+                data = GameDataJson.GSON.fromJson(
+                    json.get("gameData").getAsString(), GameData.class);
+                lastGameData = now;
+                writer.println("{\"move\":\"confirm\"}");
+                if (data.isGameOver()) {
+                    return;
+                }
+            }
+            case "start" -> {
+                phases.confirm.record(now - lastGameData);
+                if (data != null && data.activePlayer() == id) {
+                    scheduled = schedule.next();
+                    long delay = scheduled - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                    sent = System.nanoTime();
+                    writer.println(chooseMove(data));
+                    awaitingMove = true;
+                }
+            }
+            // the first move was not allowed, so drawing is
+            case "error" -> writer.println("{\"move\":\"drawCard\"}");
+            case "ping" -> writer.println("{\"move\":\"pong\"}");
+            default -> {
+            }
+            }
+        }
+    }
+
+    /**
+     * @param data the game data
+     * @return the move message for the first move the active player can
+     * make
+     */
+    private static String chooseMove(GameData data) {
+        return switch (data.state()) {
+            case PLAY_CARD -> data.playableCards().length > 0
+                ? "{\"move\":\"playCard\",\"index\":0}"
+                : "{\"move\":\"drawCard\"}";
+            case PLAY_DRAWN_CARD ->
+                "{\"move\":\"playDrawnCard\",\"play\":true}";
+            case CHANGE_COLOR ->
+                "{\"move\":\"changeColor\",\"color\":\"RED\"}";
+            case CHALLENGE_DRAW_FOUR ->
+                "{\"move\":\"challengeDrawFour\",\"challenge\":false}";
+            default -> "{\"move\":\"drawCard\"}";
+        };
+    }
+
+    /**
+     * @param histogram a histogram
+     * @return its count, mean, percentiles and maximum, in microseconds
+     */
+    private static JsonObject summarize(LatencyHistogram histogram) {
+        JsonObject summary = new JsonObject();
+        summary.addProperty("count", histogram.getCount());
+        summary.addProperty("mean", histogram.getMean() / 1e3);
+        for (double percentile : PERCENTILES) {
+            summary.addProperty(label(percentile),
+                histogram.getPercentile(percentile) / 1e3);
+        }
+        summary.addProperty("max", histogram.getMax() / 1e3);
+        return summary;
+    }
+
+    /**
+     * @param percentile a percentile
+     * @return its label, such as p99 or p99.9
+     */
+    private static String label(double percentile) {
+        return (percentile == Math.rint(percentile))
+            ? "p" + (long) percentile : "p" + percentile;
+    }
+
+    private static void print(JsonObject report) {
+        System.out.println("Config: " + report.get("config"));
+        System.out.printf("Time: %.1f s%n",
+            report.get("seconds").getAsDouble());
+        System.out.printf("%-20s %8s %10s", "Phase (us)", "count", "mean");
+        for (double percentile : PERCENTILES) {
+            System.out.printf(" %10s", label(percentile));
+        }
+        System.out.printf(" %10s%n", "max");
+        report.getAsJsonObject("phases").entrySet().forEach(phase -> {
+            JsonObject summary = phase.getValue().getAsJsonObject();
+            System.out.printf("%-20s %8d %10.1f", phase.getKey(),
+                summary.get("count").getAsLong(),
+                summary.get("mean").getAsDouble());
+            for (double percentile : PERCENTILES) {
+                System.out.printf(" %10.1f",
+                    summary.get(label(percentile)).getAsDouble());
+            }
+            System.out.printf(" %10.1f%n", summary.get("max").getAsDouble());
+        });
+    }
+
+    /**
+     * Times at which a table's moves are due, at a fixed rate from the
+     * first move, however late the earlier moves were.
+     */
+    private static class Schedule {
+        private final long interval;
+        private final AtomicLong numMoves = new AtomicLong();
+        private volatile long start;
+
+        Schedule(double rate) {
+            interval = (long) (1e9 / rate);
+        }
+
+        /**
+         * @return the time at which the next move is due
+         */
+        long next() {
+            if (start == 0) {
+                synchronized (this) {
+                    if (start == 0) {
+                        start = System.nanoTime();
+                    }
+                }
+            }
+            return start + numMoves.getAndIncrement() * interval;
+        }
+    }
+
+    /**
+     * Latencies of each phase.
+     */
+    private static class Phases {
+        private final LatencyHistogram move = new LatencyHistogram();
+        private final LatencyHistogram moveUncorrected =
+            new LatencyHistogram();
+        private final LatencyHistogram confirm = new LatencyHistogram();
+
+        Map<String, LatencyHistogram> byName() {
+            Map<String, LatencyHistogram> byName = new LinkedHashMap<>();
+            byName.put("move", move);
+            byName.put("move (uncorrected)", moveUncorrected);
+            byName.put("confirm", confirm);
+            return byName;
+        }
+    }
+}
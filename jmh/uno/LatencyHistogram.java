@@ -0,0 +1,99 @@
+package uno;
+
+/**
+ * Histogram of latencies in nanoseconds with a relative error under 2%.
+ * Values below 128 have a bucket each; above that, every power of two is
+ * split into 64 buckets. Thread-safe.
+ */
+class LatencyHistogram {
+    /**
+     * Number of values with a bucket each.
+     */
+    private static final int LINEAR_BUCKETS = 128;
+    /**
+     * Number of buckets in each power of two above the linear buckets.
+     */
+    private static final int BUCKETS_PER_POWER = LINEAR_BUCKETS / 2;
+    private static final int NUM_BUCKETS =
+        LINEAR_BUCKETS + (63 - 7) * BUCKETS_PER_POWER;
+
+    private final long[] counts = new long[NUM_BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency, where negative values count as 0
+     */
+    synchronized void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean latency, or 0 if none were recorded
+     */
+    synchronized double getMean() {
+        return (count == 0) ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @return the highest latency recorded, or 0 if none were
+     */
+    synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile a percentile, between 0 and 100
+     * @return the latency at or below which the percentile of the recorded
+     * latencies are, rounded up to the end of its bucket, or 0 if none
+     * were recorded
+     */
+    synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValueOf(i));
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        // keep the 7 highest bits of the value
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return LINEAR_BUCKETS + (shift - 1) * BUCKETS_PER_POWER
+            + (int) (value >>> shift) - BUCKETS_PER_POWER;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_BUCKETS) / BUCKETS_PER_POWER + 1;
+        long top = (bucket - LINEAR_BUCKETS) % BUCKETS_PER_POWER
+            + BUCKETS_PER_POWER;
+        return ((top + 1) << shift) - 1;
+    }
+}
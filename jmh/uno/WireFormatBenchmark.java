@@ -0,0 +1,148 @@
+package uno;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the game data frames sent by the server, for each encoding of
+ * the game data. A frame is built like {@code UnoServer} does and decoded
+ * like {@code UnoClient} does, with the game data as a JSON string inside
+ * the frame's JSON. The encodings are:
+ * <ul>
+ *     <li>reflective: Gson's reflection, as before {@code GameDataJson}
+ *     <li>adapters: the adapters in {@code GameDataJson}
+ * </ul>
+ * Games are taken from random play, with the active player holding the
+ * given number of cards. {@code WireFormatSizes} prints the size of the
+ * same frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    /**
+     * Gson for the frame around the game data, which the client parses
+     * with a plain Gson whatever the encoding.
+     */
+    private static final Gson FRAME_GSON = new Gson();
+
+    @Param({"reflective", "adapters"})
+    public String encoding;
+
+    @Param({"2", "4", "6", "10"})
+    public int numPlayers;
+
+    @Param({"2", "7", "15"})
+    public int handSize;
+
+    private Gson gson;
+    private Game game;
+    private GameData data;
+    private String gameDataJson;
+    private String frame;
+
+    @Setup
+    public void setUp() {
+        gson = gsonFor(encoding);
+        game = gameWithHandSize(numPlayers, handSize);
+        data = new GameData(game);
+        gameDataJson = gson.toJson(data);
+        frame = encodeFrame(gson, game);
+    }
+
+    /**
+     * Copying the game into game data, which every encoding does first.
+     */
+    @Benchmark
+    public GameData buildGameData() {
+        return new GameData(game);
+    }
+
+    @Benchmark
+    public String encodeGameData() {
+        return gson.toJson(data);
+    }
+
+    /**
+     * Everything the server does to send the game, like
+     * {@code UnoServer.sendGameData}.
+     */
+    @Benchmark
+    public String encodeFrame() {
+        return encodeFrame(gson, game);
+    }
+
+    @Benchmark
+    public GameData decodeGameData() {
+        return gson.fromJson(gameDataJson, GameData.class);
+    }
+
+    /**
+     * Everything the client does to read the game, like
+     * {@code UnoClient.getGameData}.
+     */
+    @Benchmark
+    public GameData decodeFrame() {
+        JsonObject json = FRAME_GSON.fromJson(frame, JsonObject.class);
+        return gson.fromJson(json.get("gameData").getAsString(),
+            GameData.class);
+    }
+
+    /**
+     * @param encoding name of an encoding
+     * @return Gson for the encoding
+     * @throws IllegalArgumentException if there is no such encoding
+     */
+    static Gson gsonFor(@NotNull String encoding) {
+        return switch (encoding) {
+            case "reflective" -> new Gson();
+            case "adapters" -> GameDataJson.GSON;
+            default -> throw new IllegalArgumentException(
+                "Unknown encoding: " + encoding);
+        };
+    }
+
+    /**
+     * @param numPlayers number of players
+     * @param handSize   number of cards of the active player
+     * @return a game from random play where the active player is about to
+     * play and holds {@code handSize} cards
+     */
+    static Game gameWithHandSize(int numPlayers, int handSize) {
+        return BenchmarkGames.find(numPlayers, 42,
+            handSize > Game.INITIAL_HAND_SIZE,
+            game -> game.getState() == GameState.PLAY_CARD
+                && game.getHandSize(game.getActivePlayer()) == handSize);
+    }
+
+    /**
+     * @param gson Gson for the game data
+     * @param game the game
+     * @return the line the server sends with the game data
+     */
+    static String encodeFrame(@NotNull Gson gson, @NotNull Game game) {
+        JsonObject gameJson = new JsonObject();
+        gameJson.add("type", new JsonPrimitive("game"));
+        gameJson.add("gameData",
+            new JsonPrimitive(gson.toJson(new GameData(game))));
+        return gameJson.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package uno;
+
+import com.google.gson.Gson;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prints the size in bytes of the frames measured by
+ * {@code WireFormatBenchmark}, including the line terminator, for each
+ * encoding, number of players and hand size.
+ */
+public class WireFormatSizes {
+    private static final String[] ENCODINGS = {"reflective", "adapters"};
+    private static final int[] NUM_PLAYERS = {2, 4, 6, 10};
+    private static final int[] HAND_SIZES = {2, 7, 15};
+
+    public static void main(String[] args) {
+        System.out.printf("%-8s %-9s", "Players", "Hand");
+        for (String encoding : ENCODINGS) {
+            System.out.printf(" %12s", encoding);
+        }
+        System.out.println();
+        for (int numPlayers : NUM_PLAYERS) {
+            for (int handSize : HAND_SIZES) {
+                Game game = WireFormatBenchmark.gameWithHandSize(numPlayers,
+                    handSize);
+                System.out.printf("%-8d %-9d", numPlayers, handSize);
+                for (String encoding : ENCODINGS) {
+                    Gson gson = WireFormatBenchmark.gsonFor(encoding);
+                    String frame = WireFormatBenchmark.encodeFrame(gson, game);
+                    System.out.printf(" %12d",
+                        frame.getBytes(StandardCharsets.UTF_8).length + 1);
+                }
+                System.out.println();
+            }
+        }
+    }
+}
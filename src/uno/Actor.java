@@ -0,0 +1,96 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An object that handles messages one at a time on a shared pool of
+ * threads. Any thread may send a message; the messages are queued in a
+ * lock-free mailbox, and the actor is scheduled on the pool when it has
+ * messages and is not already scheduled. A scheduled actor handles up to
+ * {@code BATCH_SIZE} messages before giving its thread back to other
+ * actors.
+ *
+ * <p>Because an actor is never run by two threads at once, its state needs
+ * no locks, and everything it did while handling one message is visible
+ * when it handles the next, even on another thread.
+ *
+ * @param <M> the type of messages
+ */
+abstract class Actor<M> {
+    /**
+     * Maximum number of messages handled each time the actor is run.
+     */
+    static final int BATCH_SIZE = 64;
+
+    private final Executor pool;
+    private final Queue<M> mailbox;
+    /**
+     * Whether the actor is running or waiting to run on the pool.
+     */
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Create an actor.
+     *
+     * @param pool the pool to run on
+     */
+    Actor(@NotNull Executor pool) {
+        this.pool = pool;
+        mailbox = new ConcurrentLinkedQueue<>();
+        scheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Send a message to the actor. May be called from any thread, including
+     * from the actor itself.
+     *
+     * @param message the message
+     */
+    final void send(@NotNull M message) {
+        mailbox.add(message);
+        schedule();
+    }
+
+    /**
+     * Handle a message. Never called by two threads at once.
+     *
+     * @param message the message
+     */
+    protected abstract void receive(@NotNull M message);
+
+    /**
+     * Schedule the actor on the pool unless it is already scheduled.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            pool.execute(this::run);
+        }
+    }
+
+    /**
+     * Handle a batch of messages, then schedule the actor again if more
+     * messages are waiting.
+     */
+    private void run() {
+        try {
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                M message = mailbox.poll();
+                if (message == null) {
+                    break;
+                }
+                receive(message);
+            }
+        } finally {
+            scheduled.set(false);
+            // a message sent after the last poll found the actor scheduled
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package uno;
+
+/**
+ * Enum for the columns of a round archive. Each row of the archive describes
+ * one player in one finished round.
+ */
+enum ArchiveColumn {
+    NUM_PLAYERS("Players", 1),
+    SEAT("Seat", 1),
+    STARTED("Started", 1),
+    ROUND_LENGTH("Round length", 4),
+    MOVES("Moves", 4),
+    START_WILDS("Starting wilds", 1),
+    START_ACTION_CARDS("Starting action cards", 1),
+    START_POINTS("Starting points", 2),
+    HAND_LOW("Starting hand (low bits)", 8),
+    HAND_HIGH("Starting hand (high bits)", 8),
+    WON("Won", 1),
+    POINTS("Points", 4);
+
+    private final String string;
+    private final int width;
+
+    /**
+     * Create a new archive column.
+     * @param string String to print for this column
+     * @param width  Number of bytes per value
+     */
+    ArchiveColumn(String string, int width) {
+        this.string = string;
+        this.width = width;
+    }
+
+    /**
+     * @return the number of bytes per value
+     */
+    int getWidth() {
+        return width;
+    }
+
+    @Override
+    public String toString() {
+        return string;
+    }
+}
@@ -0,0 +1,18 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A computer player.
+ */
+interface Bot {
+    /**
+     * Choose an action for a player. The game is not modified.
+     *
+     * @param game   the game
+     * @param player the index of the player, who must have at least one
+     *               legal action
+     * @return the chosen action, encoded as described in {@code GameAction}
+     */
+    int chooseAction(@NotNull Game game, int player);
+}
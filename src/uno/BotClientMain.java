@@ -0,0 +1,62 @@
+package uno;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BotClientMain {
+    /**
+     * Stack size of a client thread. A headless client only needs a
+     * shallow stack, and thousands of them run at once.
+     */
+    private static final long STACK_SIZE = 256 * 1024;
+
+    public static void main(String[] args)
+        throws IOException, InterruptedException {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(System.in));
+        System.out.print("Enter host: ");
+        String host = reader.readLine();
+        System.out.print("Enter port: ");
+        int port = Integer.parseInt(reader.readLine());
+        System.out.print("Enter number of clients: ");
+        int numClients = Integer.parseInt(reader.readLine());
+        System.out.print("Enter table id prefix (blank if the server has one "
+            + "table): ");
+        String prefix = reader.readLine().strip();
+        int numPlayers = 0;
+        if (!prefix.isEmpty()) {
+            System.out.print("Enter number of players per table: ");
+            numPlayers = Integer.parseInt(reader.readLine());
+        }
+        AtomicInteger numFailed = new AtomicInteger();
+        Thread[] threads = new Thread[numClients];
+        long start = System.nanoTime();
+        for (int i = 0; i < numClients; i++) {
+            // clients fill one table before moving on to the next
+            TableRoute route = prefix.isEmpty() ? null
+                : new TableRoute(prefix + (i / numPlayers), numPlayers, 0);
+            String name = "Bot " + (i + 1);
+            threads[i] = new Thread(null, () -> {
+                try {
+                    UnoClient client = new UnoClient(host, port, name,
+                        new GreedyPolicy());
+                    if (route != null) {
+                        client.joinTable(route);
+                    }
+                    client.start();
+                } catch (RuntimeException e) {
+                    numFailed.incrementAndGet();
+                    System.out.println(name + " failed: " + e);
+                }
+            }, name, STACK_SIZE);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        System.out.printf("%d clients finished in %.1f s, %d failed.%n",
+            numClients, (System.nanoTime() - start) / 1e9, numFailed.get());
+    }
+}
@@ -2,15 +2,69 @@ package uno;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 
 /**
  * An Uno card.
  */
 class Card implements Comparable<Card> {
+    /**
+     * Number of distinct faces (combinations of color and type) of a card.
+     */
+    static final int NUM_FACES;
+    /**
+     * Number of cards in a full deck.
+     */
+    static final int NUM_CARDS;
+    /**
+     * Number of card types that are not wild.
+     */
+    private static final int NUM_COLORED_TYPES;
+    /**
+     * Index of the first card of each face, indexed by face.
+     */
+    private static final int[] FACE_OFFSETS;
+    /**
+     * Every card in a full deck, indexed by {@code index()}.
+     */
+    private static final Card[] CARDS;
+
+    static {
+        int numColoredTypes = 0;
+        int numWildTypes = 0;
+        for (CardType type : CardType.values()) {
+            if (type.isWild()) {
+                numWildTypes++;
+            } else {
+                numColoredTypes++;
+            }
+        }
+        NUM_COLORED_TYPES = numColoredTypes;
+        NUM_FACES = CardColor.NONE.ordinal() * numColoredTypes + numWildTypes;
+        FACE_OFFSETS = new int[NUM_FACES];
+        List<Card> cards = new ArrayList<>();
+        for (CardColor color : CardColor.values()) {
+            for (CardType type : CardType.values()) {
+                if (type.isWild() == (color == CardColor.NONE)) {
+                    FACE_OFFSETS[faceOf(color, type)] = cards.size();
+                    for (int i = 0; i < type.getFreq(); i++) {
+                        cards.add(new Card(color, type, i));
+                    }
+                }
+            }
+        }
+        NUM_CARDS = cards.size();
+        CARDS = cards.toArray(new Card[0]);
+    }
+
     private final CardColor color;
     private final CardType type;
     private final int id;
+    private final int face;
 
     /**
      * Create a new card.
@@ -23,6 +77,53 @@ class Card implements Comparable<Card> {
         this.color = color;
         this.type = type;
         this.id = id;
+        face = faceOf(color, type);
+    }
+
+    /**
+     * @param index index of a card, between 0 inclusive and
+     *              {@code NUM_CARDS} exclusive
+     * @return the card with index {@code index}
+     */
+    static Card fromIndex(int index) {
+        return CARDS[index];
+    }
+
+    /**
+     * Write a collection of cards to a buffer, in iteration order, one byte
+     * per card.
+     *
+     * @param buffer the buffer to write to
+     * @param cards  the cards to write
+     */
+    static void writeCards(@NotNull ByteBuffer buffer,
+                           @NotNull Collection<Card> cards) {
+        buffer.putShort((short) cards.size());
+        for (Card card : cards) {
+            buffer.put((byte) card.index());
+        }
+    }
+
+    /**
+     * Read cards written by {@code writeCards} from a buffer.
+     *
+     * @param buffer the buffer to read from
+     * @param cards  collection to add the cards to, in the order written
+     */
+    static void readCards(@NotNull ByteBuffer buffer,
+                          @NotNull Collection<Card> cards) {
+        int size = buffer.getShort();
+        for (int i = 0; i < size; i++) {
+            cards.add(CARDS[buffer.get() & 0xFF]);
+        }
+    }
+
+    private static int faceOf(CardColor color, CardType type) {
+        if (color == CardColor.NONE) {
+            return CardColor.NONE.ordinal() * NUM_COLORED_TYPES
+                + type.ordinal() - NUM_COLORED_TYPES;
+        }
+        return color.ordinal() * NUM_COLORED_TYPES + type.ordinal();
     }
 
     @Override
@@ -78,6 +179,22 @@ class Card implements Comparable<Card> {
         return type;
     }
 
+    /**
+     * @return the index of this card's combination of color and type,
+     * between 0 inclusive and {@code NUM_FACES} exclusive
+     */
+    int face() {
+        return face;
+    }
+
+    /**
+     * @return the index of this card in a full deck, between 0 inclusive and
+     * {@code NUM_CARDS} exclusive. Indices are ordered like the cards.
+     */
+    int index() {
+        return FACE_OFFSETS[face] + id;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
@@ -15,6 +15,25 @@ public class ClientMain {
         System.out.print("Enter your name: ");
         String name = reader.readLine();
         UnoClient client = new UnoClient(host, port, name);
+        System.out.print("Enter table id (blank if the server has one "
+            + "table): ");
+        String table = reader.readLine().strip();
+        if (!table.isEmpty()) {
+            System.out.print("Enter number of players (if the table is new): ");
+            int numPlayers = Integer.parseInt(reader.readLine());
+            System.out.print("Enter number of bots (if the table is new): ");
+            int numBots = Integer.parseInt(reader.readLine());
+            client.joinTable(new TableRoute(table, numPlayers, numBots));
+        }
+        // the server itself, if it keeps a journal and can be restarted
+        System.out.print("Enter host to rejoin if the server stops "
+            + "(blank for none): ");
+        String standbyHost = reader.readLine().strip();
+        if (!standbyHost.isEmpty()) {
+            System.out.print("Enter port to rejoin on: ");
+            int standbyPort = Integer.parseInt(reader.readLine());
+            client.setStandby(standbyHost, standbyPort);
+        }
         client.start();
     }
 }
@@ -0,0 +1,496 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message from a client, parsed straight from the bytes of its line. A
+ * client only ever sends a flat JSON object with a few known keys (move,
+ * index, play, color, challenge and name), so instead of building a JSON
+ * tree this parser matches those keys and their values in place and keeps
+ * the result in reusable fields. Only a name or a string with escapes
+ * allocates. Other keys and nested values are skipped, including the id
+ * clients send with their messages: the server goes by the seat of the
+ * connection instead, so a client cannot act for another seat. Not
+ * thread-safe; each connection has its own.
+ */
+class ClientMessage {
+    private static final byte[] MOVE = bytes("move");
+    private static final byte[] INDEX = bytes("index");
+    private static final byte[] PLAY = bytes("play");
+    private static final byte[] COLOR = bytes("color");
+    private static final byte[] CHALLENGE = bytes("challenge");
+    private static final byte[] NAME = bytes("name");
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[][] KEYS =
+        {MOVE, INDEX, PLAY, COLOR, CHALLENGE, NAME};
+    /**
+     * Names of the moves. A move's position is its {@code GameAction} type
+     * plus one, since confirming is not an action, and answering a ping
+     * comes last.
+     */
+    private static final byte[][] MOVES = {
+        bytes("confirm"), bytes("playCard"), bytes("drawCard"),
+        bytes("playDrawnCard"), bytes("callUno"), bytes("callLateUno"),
+        bytes("challengeUno"), bytes("changeColor"),
+        bytes("challengeDrawFour"), bytes("pong")
+    };
+    /**
+     * Position of the answer to a ping in {@code MOVES}.
+     */
+    private static final int PONG = 9;
+    private static final byte[][] COLORS =
+        new byte[CardColor.values().length][];
+    private static final byte[][] QUOTED_COLORS =
+        new byte[CardColor.values().length][];
+
+    static {
+        for (CardColor color : CardColor.values()) {
+            COLORS[color.ordinal()] = bytes(color.name());
+            QUOTED_COLORS[color.ordinal()] = bytes("\"" + color.name() + "\"");
+        }
+    }
+
+    /**
+     * Position of the move in {@code MOVES}, or -1 if there is none.
+     */
+    private int move;
+    /**
+     * Card index, or -1 if there is none or it is not a small integer.
+     */
+    private int index;
+    /**
+     * Whether to play the drawn card: 1, 0, or -1 if not given.
+     */
+    private int play;
+    /**
+     * Ordinal of the color, or -1 if there is none or it is unknown.
+     */
+    private int color;
+    /**
+     * Whether to challenge a draw four: 1, 0, or -1 if not given.
+     */
+    private int challenge;
+    private String name;
+
+    // parser state
+    private byte[] bytes;
+    private int pos;
+    private int end;
+    /**
+     * Bytes of the last value read, which are either in the line or in
+     * {@code scratch} if the value had escapes.
+     */
+    private byte[] value;
+    private int valueStart;
+    private int valueEnd;
+    /**
+     * Whether the last value read was a string, number or boolean.
+     */
+    private boolean isPrimitive;
+    /**
+     * Buffer for strings with escapes.
+     */
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Parse a line, replacing the previous message.
+     *
+     * @param bytes  buffer holding the line
+     * @param offset start of the line in the buffer
+     * @param length length of the line in bytes
+     * @return true if the line is a JSON object, and false otherwise
+     */
+    boolean parse(byte @NotNull [] bytes, int offset, int length) {
+        move = -1;
+        index = -1;
+        play = -1;
+        color = -1;
+        challenge = -1;
+        name = null;
+        this.bytes = bytes;
+        pos = offset;
+        end = offset + length;
+        boolean isObject = parseObject();
+        this.bytes = null;
+        if (!isObject) {
+            move = -1;
+            name = null;
+        }
+        return isObject;
+    }
+
+    /**
+     * @return whether the message confirms the last message from the server
+     */
+    boolean isConfirm() {
+        return move == 0;
+    }
+
+    /**
+     * @return whether the message answers a ping from the server
+     */
+    boolean isPong() {
+        return move == PONG;
+    }
+
+    /**
+     * @return the name in the message, or null if there is none
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Convert the message into an action.
+     *
+     * @param sender index of the player who sent the message
+     * @return the action encoded as described in {@code GameAction}, or -1
+     * if the message is not a well-formed move
+     */
+    int toAction(int sender) {
+        int type = move - 1;
+        return switch (type) {
+            case GameAction.PLAY_CARD -> (index == -1) ? -1
+                : GameAction.of(type, index);
+            case GameAction.DRAW_CARD, GameAction.CALL_UNO,
+                GameAction.CALL_LATE_UNO -> GameAction.of(type);
+            case GameAction.PLAY_DRAWN_CARD -> (play == -1) ? -1
+                : GameAction.of(type, play);
+            case GameAction.CHALLENGE_UNO -> GameAction.of(type, sender);
+            case GameAction.CHANGE_COLOR -> (color == -1) ? -1
+                : GameAction.of(type, color);
+            case GameAction.CHALLENGE_DRAW_FOUR -> (challenge == -1) ? -1
+                : GameAction.of(type, challenge);
+            default -> -1;
+        };
+    }
+
+    private boolean parseObject() {
+        skipWhitespace();
+        if (!consume('{')) {
+            return false;
+        }
+        skipWhitespace();
+        if (!consume('}')) {
+            do {
+                skipWhitespace();
+                if (!readString()) {
+                    return false;
+                }
+                byte[] key = keyOf();
+                skipWhitespace();
+                if (!consume(':')) {
+                    return false;
+                }
+                skipWhitespace();
+                if (!readValue()) {
+                    return false;
+                }
+                store(key);
+                skipWhitespace();
+            } while (consume(','));
+            if (!consume('}')) {
+                return false;
+            }
+        }
+        skipWhitespace();
+        return pos == end;
+    }
+
+    /**
+     * @return the known key equal to the last value read, or null if it is
+     * not a known key
+     */
+    private byte[] keyOf() {
+        for (byte[] key : KEYS) {
+            if (valueEquals(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store the last value read as the value of a key. Like a JSON object,
+     * a later value replaces an earlier one.
+     *
+     * @param key the key, or null if it is not a known key
+     */
+    private void store(byte[] key) {
+        if (key == MOVE) {
+            move = isPrimitive ? find(MOVES) : -1;
+        } else if (key == INDEX) {
+            index = isPrimitive ? smallInt() : -1;
+        } else if (key == PLAY) {
+            play = isPrimitive ? (valueEqualsIgnoreCase(TRUE) ? 1 : 0) : -1;
+        } else if (key == COLOR) {
+            color = isPrimitive ? find(COLORS) : -1;
+            if (color == -1 && isPrimitive) {
+                color = find(QUOTED_COLORS);
+            }
+        } else if (key == CHALLENGE) {
+            challenge =
+                isPrimitive ? (valueEqualsIgnoreCase(TRUE) ? 1 : 0) : -1;
+        } else if (key == NAME) {
+            name = isPrimitive ? new String(value, valueStart,
+                valueEnd - valueStart, StandardCharsets.UTF_8) : null;
+        }
+    }
+
+    /**
+     * Read a value: a string, a bare word such as a number or a boolean,
+     * or a nested object or array, which is skipped.
+     *
+     * @return true if a value was read, and false if the line is malformed
+     */
+    private boolean readValue() {
+        if (pos == end) {
+            return false;
+        }
+        byte b = bytes[pos];
+        if (b == '"') {
+            return readString();
+        }
+        if (b == '{' || b == '[') {
+            isPrimitive = false;
+            return skipNested();
+        }
+        int start = pos;
+        while (pos < end && !isDelimiter(bytes[pos])) {
+            pos++;
+        }
+        value = bytes;
+        valueStart = start;
+        valueEnd = pos;
+        isPrimitive = !valueEquals(NULL);
+        return pos > start;
+    }
+
+    /**
+     * Read a quoted string, decoding its escapes if it has any.
+     *
+     * @return true if a string was read, and false if the line is malformed
+     */
+    private boolean readString() {
+        if (!consume('"')) {
+            return false;
+        }
+        int start = pos;
+        while (pos < end && bytes[pos] != '"' && bytes[pos] != '\\') {
+            pos++;
+        }
+        isPrimitive = true;
+        value = bytes;
+        valueStart = start;
+        valueEnd = pos;
+        if (pos < end && bytes[pos] == '"') {
+            pos++;
+            return true;
+        }
+        // copy the string so far and decode the rest into the scratch buffer
+        int length = pos - start;
+        ensureScratch(length);
+        System.arraycopy(bytes, start, scratch, 0, length);
+        while (pos < end) {
+            byte b = bytes[pos++];
+            if (b == '"') {
+                value = scratch;
+                valueStart = 0;
+                valueEnd = length;
+                return true;
+            }
+            ensureScratch(length + 3);
+            if (b != '\\') {
+                scratch[length++] = b;
+                continue;
+            }
+            if (pos == end) {
+                return false;
+            }
+            byte escape = bytes[pos++];
+            switch (escape) {
+            case '"', '\\', '/' -> scratch[length++] = escape;
+            case 'b' -> scratch[length++] = '\b';
+            case 'f' -> scratch[length++] = '\f';
+            case 'n' -> scratch[length++] = '\n';
+            case 'r' -> scratch[length++] = '\r';
+            case 't' -> scratch[length++] = '\t';
+            case 'u' -> {
+                int c = readHex4();
+                if (c == -1) {
+                    return false;
+                }
+                length = encodeUtf8(c, length);
+            }
+            default -> {
+                return false;
+            }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip a nested object or array, including any strings inside it.
+     *
+     * @return true if it was closed, and false if the line ended first
+     */
+    private boolean skipNested() {
+        int depth = 0;
+        while (pos < end) {
+            byte b = bytes[pos++];
+            if (b == '"') {
+                while (pos < end && bytes[pos] != '"') {
+                    pos += (bytes[pos] == '\\') ? 2 : 1;
+                }
+                pos++;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if ((b == '}' || b == ']') && --depth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the four hex digits at the current position as a number, or
+     * -1 if they are not hex digits
+     */
+    private int readHex4() {
+        if (end - pos < 4) {
+            return -1;
+        }
+        int c = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(bytes[pos++], 16);
+            if (digit == -1) {
+                return -1;
+            }
+            c = (c << 4) | digit;
+        }
+        return c;
+    }
+
+    /**
+     * Write a UTF-16 code unit to the scratch buffer as UTF-8. Surrogates
+     * are written one at a time, which is enough for names.
+     *
+     * @param c      the code unit
+     * @param length current length of the scratch buffer
+     * @return the new length of the scratch buffer
+     */
+    private int encodeUtf8(int c, int length) {
+        if (c < 0x80) {
+            scratch[length++] = (byte) c;
+        } else if (c < 0x800) {
+            scratch[length++] = (byte) (0xC0 | (c >> 6));
+            scratch[length++] = (byte) (0x80 | (c & 0x3F));
+        } else {
+            scratch[length++] = (byte) (0xE0 | (c >> 12));
+            scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            scratch[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+        return length;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            byte[] larger = new byte[Math.max(length, scratch.length * 2)];
+            System.arraycopy(scratch, 0, larger, 0, scratch.length);
+            scratch = larger;
+        }
+    }
+
+    /**
+     * @return the non-negative integer of at most three digits and less
+     * than 256 in the last value read, or -1 if there is none
+     */
+    private int smallInt() {
+        int length = valueEnd - valueStart;
+        if (length == 0 || length > 3) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = valueStart; i < valueEnd; i++) {
+            if (value[i] < '0' || value[i] > '9') {
+                return -1;
+            }
+            n = n * 10 + (value[i] - '0');
+        }
+        return (n < 256) ? n : -1;
+    }
+
+    /**
+     * @param candidates byte strings to look for
+     * @return the position of the last value read in the candidates, or -1
+     * if it is not one of them
+     */
+    private int find(byte[][] candidates) {
+        for (int i = 0; i < candidates.length; i++) {
+            if (valueEquals(candidates[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean valueEquals(byte[] expected) {
+        if (valueEnd - valueStart != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (value[valueStart + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param expected lowercase ASCII byte string
+     * @return whether the last value read equals the byte string, ignoring
+     * case
+     */
+    private boolean valueEqualsIgnoreCase(byte[] expected) {
+        if (valueEnd - valueStart != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if ((value[valueStart + i] | 0x20) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean consume(char c) {
+        if (pos < end && bytes[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(bytes[pos])) {
+            pos++;
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return isWhitespace(b) || b == ',' || b == ':' || b == '}'
+            || b == ']' || b == '{' || b == '[' || b == '"';
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+}
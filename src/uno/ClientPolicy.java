@@ -0,0 +1,21 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Chooses the moves of a headless {@code UnoClient}. Unlike a {@code Bot},
+ * a policy only sees the game data the server sends to its player.
+ */
+interface ClientPolicy {
+    /**
+     * Choose a move after the server has sent game data and started the
+     * turn. Called for the active player and for any player who can
+     * challenge Uno.
+     *
+     * @param data   the game data
+     * @param player the index of the player
+     * @return the chosen action, encoded as described in
+     * {@code GameAction}, or -1 to make no move
+     */
+    int chooseAction(@NotNull GameData data, int player);
+}
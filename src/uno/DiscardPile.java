@@ -2,7 +2,9 @@ package uno;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 
@@ -25,16 +27,61 @@ class DiscardPile {
      * the last wild card was played.
      */
     private CardColor beforeWildColor;
+    /**
+     * Number of cards of each color in the pile, indexed by ordinal.
+     */
+    private final int[] colorCounts;
 
     /**
      * Create a new discard pile.
      */
     DiscardPile() {
         cardStack = new Stack<>();
+        colorCounts = new int[CardColor.values().length];
         wildColor = CardColor.NONE;
         beforeWildColor = CardColor.NONE;
     }
 
+    /**
+     * Create a copy of a discard pile.
+     *
+     * @param other the discard pile to copy
+     */
+    DiscardPile(@NotNull DiscardPile other) {
+        cardStack = new Stack<>();
+        cardStack.addAll(other.cardStack);
+        colorCounts = other.colorCounts.clone();
+        wildColor = other.wildColor;
+        beforeWildColor = other.beforeWildColor;
+    }
+
+    /**
+     * Read a discard pile written by {@code write}.
+     *
+     * @param buffer the buffer to read from
+     */
+    DiscardPile(@NotNull ByteBuffer buffer) {
+        this();
+        Card.readCards(buffer, cardStack);
+        for (Card card : cardStack) {
+            colorCounts[card.color().ordinal()]++;
+        }
+        CardColor[] colors = CardColor.values();
+        wildColor = colors[buffer.get()];
+        beforeWildColor = colors[buffer.get()];
+    }
+
+    /**
+     * Write the discard pile to a buffer.
+     *
+     * @param buffer the buffer to write to
+     */
+    void write(@NotNull ByteBuffer buffer) {
+        Card.writeCards(buffer, cardStack);
+        buffer.put((byte) wildColor.ordinal());
+        buffer.put((byte) beforeWildColor.ordinal());
+    }
+
     /**
      * Check the top card of the discard pile, requires that the discard pile
      * is not empty.
@@ -59,6 +106,21 @@ class DiscardPile {
         return beforeWildColor;
     }
 
+    /**
+     * @return the number of cards in the pile
+     */
+    int size() {
+        return cardStack.size();
+    }
+
+    /**
+     * @param color color to count
+     * @return the number of cards of color {@code color} in the pile
+     */
+    int countColor(@NotNull CardColor color) {
+        return colorCounts[color.ordinal()];
+    }
+
     /**
      * @param wildColor the new wild color of the pile, not null
      */
@@ -85,6 +147,7 @@ class DiscardPile {
             }
         }
         cardStack.push(card);
+        colorCounts[card.color().ordinal()]++;
     }
 
     /**
@@ -95,6 +158,7 @@ class DiscardPile {
     List<Card> clear() {
         List<Card> oldCards = new ArrayList<>(cardStack);
         cardStack.clear();
+        Arrays.fill(colorCounts, 0);
         return oldCards;
     }
 
@@ -106,8 +170,10 @@ class DiscardPile {
      */
     List<Card> clearExceptTop() {
         Card topCard = cardStack.pop();
+        colorCounts[topCard.color().ordinal()]--;
         List<Card> oldCards = clear();
         cardStack.push(topCard);
+        colorCounts[topCard.color().ordinal()]++;
         return oldCards;
     }
 
@@ -2,6 +2,7 @@ package uno;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -17,7 +18,7 @@ class DrawPile {
     /**
      * Random number generator for drawing cards.
      */
-    private static final Random RANDOM = new Random();
+    private final Random random;
     /**
      * List representing the cards in the pile.
      */
@@ -25,8 +26,11 @@ class DrawPile {
 
     /**
      * Create a new draw pile.
+     *
+     * @param random random number generator for drawing cards
      */
-    DrawPile() {
+    DrawPile(@NotNull Random random) {
+        this.random = random;
         cardList = new ArrayList<>();
         for (CardType type : CardType.values()) {
             for (int i = 0; i < type.getFreq(); i++) {
@@ -42,6 +46,46 @@ class DrawPile {
         }
     }
 
+    /**
+     * Create a copy of a draw pile.
+     *
+     * @param other  the draw pile to copy
+     * @param random random number generator for drawing cards
+     */
+    DrawPile(@NotNull DrawPile other, @NotNull Random random) {
+        this.random = random;
+        cardList = new ArrayList<>(other.cardList);
+    }
+
+    /**
+     * Read a draw pile written by {@code write}.
+     *
+     * @param buffer the buffer to read from
+     * @param random random number generator for drawing cards
+     */
+    DrawPile(@NotNull ByteBuffer buffer, @NotNull Random random) {
+        this.random = random;
+        cardList = new ArrayList<>();
+        Card.readCards(buffer, cardList);
+    }
+
+    /**
+     * Write the draw pile to a buffer. The order of the cards is kept, since
+     * it decides which card a random index draws.
+     *
+     * @param buffer the buffer to write to
+     */
+    void write(@NotNull ByteBuffer buffer) {
+        Card.writeCards(buffer, cardList);
+    }
+
+    /**
+     * @return the number of cards in the draw pile
+     */
+    int size() {
+        return cardList.size();
+    }
+
     /**
      * @return true if the draw pile is empty, and false otherwise
      */
@@ -74,7 +118,7 @@ class DrawPile {
      * @return the drawn card
      */
     Card drawCard() {
-        int index = RANDOM.nextInt(cardList.size());
+        int index = random.nextInt(cardList.size());
         Card selected = cardList.get(index);
         if (index < cardList.size() - 1) {
             Card last = cardList.remove(cardList.size() - 1);
@@ -84,4 +128,15 @@ class DrawPile {
         }
         return selected;
     }
-}
\ No newline at end of file
+
+    /**
+     * Clears all cards from the draw pile.
+     *
+     * @return cards that were removed
+     */
+    List<Card> clear() {
+        List<Card> oldCards = new ArrayList<>(cardList);
+        cardList.clear();
+        return oldCards;
+    }
+}
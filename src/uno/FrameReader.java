@@ -0,0 +1,99 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reader of newline-terminated frames with a maximum length. Unlike
+ * {@code BufferedReader.readLine}, it never holds more than one buffer of
+ * input, so a client sending a huge line cannot exhaust the heap. Not
+ * thread-safe.
+ */
+class FrameReader {
+    private final InputStream in;
+    private final byte[] buffer;
+    /**
+     * Start of the unread input in the buffer.
+     */
+    private int start;
+    /**
+     * End of the input in the buffer.
+     */
+    private int end;
+    private int frameStart;
+    private int frameLength;
+
+    /**
+     * Create a frame reader.
+     *
+     * @param in             the stream to read from
+     * @param maxFrameLength maximum length of a frame in bytes, not counting
+     *                       the line terminator
+     */
+    FrameReader(@NotNull InputStream in, int maxFrameLength) {
+        this.in = in;
+        // room for a full frame and its "\r\n"
+        buffer = new byte[maxFrameLength + 2];
+    }
+
+    /**
+     * Read the next frame. Its bytes stay in the buffer until the next call.
+     *
+     * @return true if a frame was read, and false if the stream ended
+     * @throws IOException if the stream cannot be read or a frame is longer
+     *                     than the maximum
+     */
+    boolean nextFrame() throws IOException {
+        int scan = start;
+        while (true) {
+            for (; scan < end; scan++) {
+                if (buffer[scan] == '\n') {
+                    int frameEnd = (scan > start && buffer[scan - 1] == '\r')
+                        ? scan - 1 : scan;
+                    frameStart = start;
+                    frameLength = frameEnd - start;
+                    start = scan + 1;
+                    return true;
+                }
+            }
+            if (start > 0) {
+                // move the partial frame to the front to make room
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                scan -= start;
+                end -= start;
+                start = 0;
+            }
+            if (end == buffer.length) {
+                throw new IOException("Frame too long.");
+            }
+            int length = in.read(buffer, end, buffer.length - end);
+            if (length == -1) {
+                return false;
+            }
+            end += length;
+        }
+    }
+
+    /**
+     * @return the buffer holding the last frame read
+     */
+    byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * @return the start of the last frame read in the buffer
+     */
+    int getFrameStart() {
+        return frameStart;
+    }
+
+    /**
+     * @return the length of the last frame read in bytes
+     */
+    int getFrameLength() {
+        return frameLength;
+    }
+}
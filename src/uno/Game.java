@@ -2,7 +2,9 @@ package uno;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -19,17 +21,30 @@ class Game {
      * Maximum number of players in a game.
      */
     static final int MAX_PLAYERS = 10;
+    /**
+     * Upper bound on the size in bytes of a snapshot written by
+     * {@code writeSnapshot}: every card is in one pile or hand and may also
+     * be listed as playable and as last drawn, each card list has a 2 byte
+     * size, and each player has 4 scores.
+     */
+    static final int MAX_SNAPSHOT_SIZE =
+        32 + 3 * Card.NUM_CARDS + 2 * (MAX_PLAYERS + 4) + 17 * MAX_PLAYERS;
 
     /**
-     * Random number generator for choosing starting player.
+     * Card colors, indexed by ordinal.
      */
-    private static final Random RANDOM = new Random();
+    private static final CardColor[] COLORS = CardColor.values();
 
     /**
      * Number of players in the game.
      */
     public final int numPlayers;
 
+    /**
+     * Random number generator for choosing the starting player and drawing
+     * cards.
+     */
+    private final Random random;
     /**
      * Draw pile for the game.
      */
@@ -92,6 +107,10 @@ class Game {
      * Whether a player can be challenged for not calling Uno.
      */
     private boolean canChallengeUno;
+    /**
+     * Whether the active player called Uno during the current turn.
+     */
+    private boolean calledUno;
 
     /**
      * Create a new game.
@@ -99,11 +118,23 @@ class Game {
      * @param numPlayers between 2 and 10 inclusive
      */
     Game(int numPlayers) {
+        this(numPlayers, new SnapshotRandom());
+    }
+
+    /**
+     * Create a new game.
+     *
+     * @param numPlayers between 2 and 10 inclusive
+     * @param random     random number generator for choosing the starting
+     *                   player and drawing cards
+     */
+    Game(int numPlayers, @NotNull Random random) {
         if (numPlayers < MIN_PLAYERS || numPlayers > MAX_PLAYERS) {
             throw new IllegalArgumentException("Invalid number of players.");
         }
         this.numPlayers = numPlayers;
-        drawPile = new DrawPile();
+        this.random = random;
+        drawPile = new DrawPile(random);
         discardPile = new DiscardPile();
         hands = new Hand[numPlayers];
         for (int i = 0; i < numPlayers; i++) {
@@ -116,6 +147,149 @@ class Game {
         state = GameState.ROUND_START;
     }
 
+    /**
+     * Create a copy of a game. The copy shares no mutable state with the
+     * original.
+     *
+     * @param other  the game to copy
+     * @param random random number generator for the copy
+     */
+    Game(@NotNull Game other, @NotNull Random random) {
+        numPlayers = other.numPlayers;
+        this.random = random;
+        drawPile = new DrawPile(other.drawPile, random);
+        discardPile = new DiscardPile(other.discardPile);
+        hands = new Hand[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            hands[i] = new Hand(other.hands[i]);
+        }
+        scoreboard = new Scoreboard(other.scoreboard);
+        playableCards = new ArrayList<>(other.playableCards);
+        lastDrawnCards = new ArrayList<>(other.lastDrawnCards);
+        state = other.state;
+        lastMove = other.lastMove;
+        direction = other.direction;
+        activePlayer = other.activePlayer;
+        lastPlayed = other.lastPlayed;
+        lastAttacked = other.lastAttacked;
+        isDrawFour = other.isDrawFour;
+        canCallUno = other.canCallUno;
+        canChallengeUno = other.canChallengeUno;
+        calledUno = other.calledUno;
+    }
+
+    /**
+     * Read a game from a snapshot written by {@code writeSnapshot}. The game
+     * continues exactly like the one the snapshot was taken of.
+     *
+     * @param snapshot the buffer to read from
+     */
+    Game(@NotNull ByteBuffer snapshot) {
+        numPlayers = snapshot.get();
+        if (numPlayers < MIN_PLAYERS || numPlayers > MAX_PLAYERS) {
+            throw new IllegalArgumentException("Invalid snapshot.");
+        }
+        SnapshotRandom snapshotRandom = new SnapshotRandom();
+        snapshotRandom.setState(snapshot.getLong());
+        random = snapshotRandom;
+        drawPile = new DrawPile(snapshot, random);
+        discardPile = new DiscardPile(snapshot);
+        hands = new Hand[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            hands[i] = new Hand(snapshot);
+        }
+        scoreboard = new Scoreboard(numPlayers, snapshot);
+        playableCards = new ArrayList<>();
+        Card.readCards(snapshot, playableCards);
+        lastDrawnCards = new ArrayList<>();
+        Card.readCards(snapshot, lastDrawnCards);
+        state = GameState.values()[snapshot.get()];
+        int move = snapshot.get();
+        lastMove = move < 0 ? null : GameMove.values()[move];
+        int dir = snapshot.get();
+        direction = dir < 0 ? null : Direction.values()[dir];
+        activePlayer = snapshot.get();
+        lastPlayed = snapshot.get();
+        lastAttacked = snapshot.get();
+        int flags = snapshot.get();
+        isDrawFour = (flags & 1) != 0;
+        canCallUno = (flags & 2) != 0;
+        canChallengeUno = (flags & 4) != 0;
+        calledUno = (flags & 8) != 0;
+    }
+
+    /**
+     * Write a snapshot of the game to a buffer, including the state of its
+     * random number generator. At most {@code MAX_SNAPSHOT_SIZE} bytes are
+     * written.
+     *
+     * @param snapshot the buffer to write to
+     * @throws IllegalStateException if the game's random number generator is
+     *                               not a {@code SnapshotRandom}
+     */
+    void writeSnapshot(@NotNull ByteBuffer snapshot) {
+        if (!(random instanceof SnapshotRandom snapshotRandom)) {
+            throw new IllegalStateException(
+                "Random number generator cannot be saved.");
+        }
+        snapshot.put((byte) numPlayers);
+        snapshot.putLong(snapshotRandom.getState());
+        drawPile.write(snapshot);
+        discardPile.write(snapshot);
+        for (Hand hand : hands) {
+            hand.write(snapshot);
+        }
+        scoreboard.write(snapshot);
+        Card.writeCards(snapshot, playableCards);
+        Card.writeCards(snapshot, lastDrawnCards);
+        snapshot.put((byte) state.ordinal());
+        snapshot.put((byte) (lastMove == null ? -1 : lastMove.ordinal()));
+        snapshot.put((byte) (direction == null ? -1 : direction.ordinal()));
+        snapshot.put((byte) activePlayer);
+        snapshot.put((byte) lastPlayed);
+        snapshot.put((byte) lastAttacked);
+        snapshot.put((byte) ((isDrawFour ? 1 : 0) | (canCallUno ? 2 : 0)
+            | (canChallengeUno ? 4 : 0) | (calledUno ? 8 : 0)));
+    }
+
+    /**
+     * Create a copy of the game as seen by one player, where the cards that
+     * player cannot see (the other hands and the draw pile) are dealt out
+     * again at random. Each hand keeps its size.
+     *
+     * @param observer the index of the player whose view is kept
+     * @param random   random number generator for dealing and for the copy
+     * @return the copy
+     */
+    Game determinize(int observer, @NotNull Random random) {
+        Game copy = new Game(this, random);
+        List<Card> hidden = copy.drawPile.clear();
+        for (int i = 0; i < numPlayers; i++) {
+            if (i != observer) {
+                hidden.addAll(copy.hands[i].clear());
+            }
+        }
+        if (state == GameState.PLAY_DRAWN_CARD && activePlayer != observer) {
+            // the drawn card must stay with the player who is deciding on it
+            Card drawnCard = lastDrawnCards.get(0);
+            hidden.remove(drawnCard);
+            copy.hands[activePlayer].add(drawnCard);
+        }
+        Collections.shuffle(hidden, random);
+        int next = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            Hand hand = copy.hands[i];
+            while (hand.size() < hands[i].size()) {
+                hand.add(hidden.get(next++));
+            }
+        }
+        copy.drawPile.add(hidden.subList(next, hidden.size()));
+        if (state == GameState.PLAY_CARD && activePlayer != observer) {
+            copy.updatePlayableCards();
+        }
+        return copy;
+    }
+
     /**
      * Start a new round.
      *
@@ -126,7 +300,7 @@ class Game {
             throw new IllegalStateException("State is not ROUND_START");
         }
         resetFlags();
-        activePlayer = RANDOM.nextInt(numPlayers);
+        activePlayer = random.nextInt(numPlayers);
         dealCards();
         handleTopCard();
     }
@@ -169,7 +343,7 @@ class Game {
         if (state != GameState.PLAY_CARD) {
             throw new IllegalStateException("State is not PLAY_CARD");
         }
-        if (lastMove == GameMove.CALL_UNO) {
+        if (calledUno) {
             throw new IllegalStateException(
                 "Cannot draw card after calling Uno.");
         }
@@ -199,7 +373,7 @@ class Game {
         if (state != GameState.PLAY_DRAWN_CARD) {
             throw new IllegalStateException("State is not PLAY_DRAWN_CARD");
         }
-        if (lastMove == GameMove.CALL_UNO && !play) {
+        if (calledUno && !play) {
             throw new IllegalStateException(
                 "Cannot keep card after calling Uno.");
         }
@@ -237,6 +411,7 @@ class Game {
         lastMove = GameMove.CALL_UNO;
         lastPlayed = activePlayer;
         canCallUno = false;
+        calledUno = true;
     }
 
     /**
@@ -297,7 +472,7 @@ class Game {
         if (isDrawFour) {
             isDrawFour = false;
             state = GameState.CHALLENGE_DRAW_FOUR;
-        } else if (lastPlayed != -1) {
+        } else {
             startTurn();
         }
     }
@@ -335,6 +510,151 @@ class Game {
         startTurn();
     }
 
+    /**
+     * Write the legal actions of a player for the current state into an
+     * array. Actions are encoded as described in {@code GameAction}. Starting
+     * and resetting rounds are not player actions and are never listed.
+     *
+     * @param player  the index of the player
+     * @param actions array to write the actions to, with room for at least
+     *                {@code GameAction.MAX_ACTIONS} elements
+     * @return the number of actions written
+     */
+    int getLegalActions(int player, @NotNull int[] actions) {
+        int count = 0;
+        boolean isActive = (player == activePlayer);
+        switch (state) {
+        case PLAY_CARD -> {
+            if (isActive) {
+                for (int i = 0; i < playableCards.size(); i++) {
+                    actions[count++] = GameAction.of(GameAction.PLAY_CARD, i);
+                }
+                if (!calledUno) {
+                    actions[count++] = GameAction.of(GameAction.DRAW_CARD);
+                }
+            }
+            if (canChallengeUno) {
+                if (player == lastPlayed) {
+                    actions[count++] = GameAction.of(GameAction.CALL_LATE_UNO);
+                } else {
+                    actions[count++] =
+                        GameAction.of(GameAction.CHALLENGE_UNO, player);
+                }
+            }
+        }
+        case PLAY_DRAWN_CARD -> {
+            if (isActive) {
+                actions[count++] =
+                    GameAction.of(GameAction.PLAY_DRAWN_CARD, true);
+                if (!calledUno) {
+                    actions[count++] =
+                        GameAction.of(GameAction.PLAY_DRAWN_CARD, false);
+                }
+            }
+        }
+        case CHANGE_COLOR -> {
+            if (isActive) {
+                for (CardColor color : COLORS) {
+                    if (color != CardColor.NONE) {
+                        actions[count++] = GameAction.of(
+                            GameAction.CHANGE_COLOR, color.ordinal());
+                    }
+                }
+            }
+        }
+        case CHALLENGE_DRAW_FOUR -> {
+            if (isActive) {
+                actions[count++] =
+                    GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, true);
+                actions[count++] =
+                    GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, false);
+            }
+        }
+        }
+        if (isActive && canCallUno && (state == GameState.PLAY_CARD
+            || state == GameState.PLAY_DRAWN_CARD)) {
+            actions[count++] = GameAction.of(GameAction.CALL_UNO);
+        }
+        return count;
+    }
+
+    /**
+     * Apply an action encoded as described in {@code GameAction}, including
+     * the round actions that are not player actions.
+     *
+     * @param action the action to apply
+     * @throws IllegalStateException    if the action is not allowed in the
+     *                                  current state
+     * @throws IllegalArgumentException if the action is malformed
+     */
+    void apply(int action) {
+        int arg = GameAction.arg(action);
+        switch (GameAction.type(action)) {
+        case GameAction.PLAY_CARD -> playCard(arg);
+        case GameAction.DRAW_CARD -> drawCard();
+        case GameAction.PLAY_DRAWN_CARD -> playDrawnCard(arg != 0);
+        case GameAction.CALL_UNO -> callUno();
+        case GameAction.CALL_LATE_UNO -> callLateUno();
+        case GameAction.CHALLENGE_UNO -> challengeUno(arg);
+        case GameAction.CHANGE_COLOR -> {
+            if (arg >= COLORS.length) {
+                throw new IllegalArgumentException("Invalid color");
+            }
+            changeColor(COLORS[arg]);
+        }
+        case GameAction.CHALLENGE_DRAW_FOUR -> challengeDrawFour(arg != 0);
+        case GameAction.START_ROUND -> startRound();
+        case GameAction.RESET_ROUND -> resetRound();
+        case GameAction.RESET_GAME -> resetGame();
+        default -> throw new IllegalArgumentException("Invalid action");
+        }
+    }
+
+    /**
+     * Check whether a player may apply an action, without throwing.
+     *
+     * @param player the index of the player making the move
+     * @param action the action, encoded as described in {@code GameAction}
+     * @return {@code MoveResult.OK} if the action is legal, and the reason
+     * it is not otherwise
+     */
+    MoveResult validate(int player, int action) {
+        return MoveRules.validate(player, action, numPlayers, state,
+            activePlayer, lastPlayed, playableCards.size(), canCallUno,
+            canChallengeUno, calledUno);
+    }
+
+    /**
+     * Apply an action for a player if it is legal, without throwing.
+     *
+     * @param player the index of the player making the move
+     * @param action the action, encoded as described in {@code GameAction}
+     * @return {@code MoveResult.OK} if the action was applied, and the
+     * reason it was rejected otherwise
+     */
+    MoveResult tryApply(int player, int action) {
+        MoveResult result = validate(player, action);
+        if (result == MoveResult.OK) {
+            apply(action);
+        }
+        return result;
+    }
+
+    /**
+     * Have the player after the most recently played player challenge them
+     * for not calling Uno, if they can be challenged. Simulations use this
+     * in place of waiting for an opponent to notice.
+     *
+     * @return true if a challenge was made, and false otherwise
+     */
+    boolean challengeMissedUno() {
+        if (state != GameState.PLAY_CARD || !canChallengeUno) {
+            return false;
+        }
+        challengeUno((lastPlayed + 1) % numPlayers);
+        return true;
+    }
+
     /**
      * Reset the round.
      */
@@ -357,6 +677,18 @@ class Game {
         collectCards();
     }
 
+    /**
+     * Abandon the current round without scoring it.
+     *
+     * @throws IllegalStateException if the state is ROUND_START
+     */
+    void abandonRound() {
+        if (state == GameState.ROUND_START) {
+            throw new IllegalStateException("State is ROUND_START");
+        }
+        collectCards();
+    }
+
     /**
      * @return the index of the active player
      */
@@ -399,6 +731,14 @@ class Game {
         return canChallengeUno;
     }
 
+    /**
+     * @return whether the active player called Uno this turn, which means
+     * they must play a card
+     */
+    boolean hasCalledUno() {
+        return calledUno;
+    }
+
     /**
      * @return whether a player has reached the target score
      */
@@ -435,6 +775,87 @@ class Game {
         return playableCards.toArray(new Card[0]);
     }
 
+    /**
+     * @return the number of playable cards for the active player
+     */
+    int getNumPlayableCards() {
+        return playableCards.size();
+    }
+
+    /**
+     * @param index index of the card in the list of playable cards, must be
+     *              in bounds
+     * @return the playable card at the given index
+     */
+    Card getPlayableCard(int index) {
+        return playableCards.get(index);
+    }
+
+    /**
+     * @param player the index of the player
+     * @return the number of cards in the player's hand
+     */
+    int getHandSize(int player) {
+        return hands[player].size();
+    }
+
+    /**
+     * @param player the index of the player
+     * @param color  the color to count
+     * @return the number of cards of the color in the player's hand
+     */
+    int countColor(int player, @NotNull CardColor color) {
+        return hands[player].countColor(color);
+    }
+
+    /**
+     * @param player the index of the player
+     * @param face   the face to count, as given by {@code Card.face()}
+     * @return the number of cards with the face in the player's hand
+     */
+    int countFace(int player, int face) {
+        return hands[player].countFace(face);
+    }
+
+    /**
+     * @return the number of cards in the draw pile
+     */
+    int getDrawPileSize() {
+        return drawPile.size();
+    }
+
+    /**
+     * @return the number of cards in the discard pile
+     */
+    int getDiscardPileSize() {
+        return discardPile.size();
+    }
+
+    /**
+     * @param color the color to count
+     * @return the number of cards of the color in the discard pile
+     */
+    int countDiscardedColor(@NotNull CardColor color) {
+        return discardPile.countColor(color);
+    }
+
+    /**
+     * @return the color of the discard pile before the last wild card was
+     * played
+     */
+    CardColor getBeforeWildColor() {
+        return discardPile.getBeforeWildColor();
+    }
+
+    /**
+     * @return the index of the player after the active player in the
+     * current play direction
+     */
+    int getNextPlayer() {
+        int step = (direction == Direction.CW) ? 1 : -1;
+        return Math.floorMod(activePlayer + step, numPlayers);
+    }
+
     /**
      * @return the list of cards last drawn
      */
@@ -503,6 +924,7 @@ class Game {
         isDrawFour = false;
         canCallUno = false;
         canChallengeUno = false;
+        calledUno = false;
     }
 
     /**
@@ -589,6 +1011,7 @@ class Game {
      */
     private void startTurn() {
         state = GameState.PLAY_CARD;
+        calledUno = false;
         updatePlayableCards();
         Hand hand = hands[activePlayer];
         canCallUno = (hand.size() == 2) && !playableCards.isEmpty();
@@ -633,8 +1056,7 @@ class Game {
      * Advance the active player.
      */
     private void advancePlayer() {
-        int step = (direction == Direction.CW) ? 1 : -1;
-        activePlayer = Math.floorMod(activePlayer + step, numPlayers);
+        activePlayer = getNextPlayer();
     }
 
     /**
@@ -642,11 +1064,7 @@ class Game {
      */
     private void updatePlayableCards() {
         playableCards.clear();
-        for (Card card : hands[activePlayer].getCards()) {
-            if (discardPile.isPlayable(card)) {
-                playableCards.add(card);
-            }
-        }
+        hands[activePlayer].getPlayableCards(discardPile, playableCards);
     }
 
     /**
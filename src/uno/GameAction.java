@@ -0,0 +1,146 @@
+package uno;
+
+/**
+ * Integer encoding of the actions a player can take in a game. An action
+ * packs a type in the high bits and an argument (a playable card index, a
+ * player index, a color ordinal or a boolean) in the low bits, so that
+ * lists of actions can be stored in plain {@code int} arrays.
+ */
+final class GameAction {
+    /**
+     * Play the card at the index given by the argument in the list of
+     * playable cards.
+     */
+    static final int PLAY_CARD = 0;
+    /**
+     * Draw a card.
+     */
+    static final int DRAW_CARD = 1;
+    /**
+     * Play (argument 1) or keep (argument 0) the card just drawn.
+     */
+    static final int PLAY_DRAWN_CARD = 2;
+    /**
+     * Call Uno.
+     */
+    static final int CALL_UNO = 3;
+    /**
+     * Call Uno late, before being challenged.
+     */
+    static final int CALL_LATE_UNO = 4;
+    /**
+     * Challenge the last played player for not calling Uno, with the
+     * index of the challenging player as the argument.
+     */
+    static final int CHALLENGE_UNO = 5;
+    /**
+     * Change the color to the {@code CardColor} with the ordinal given by
+     * the argument.
+     */
+    static final int CHANGE_COLOR = 6;
+    /**
+     * Challenge (argument 1) or accept (argument 0) a draw four.
+     */
+    static final int CHALLENGE_DRAW_FOUR = 7;
+    /**
+     * Start a new round. This and the other round actions below are not
+     * player actions; they let a whole game be recorded as a list of
+     * actions.
+     */
+    static final int START_ROUND = 8;
+    /**
+     * Reset the round after it is over, keeping the scores.
+     */
+    static final int RESET_ROUND = 9;
+    /**
+     * Reset the game after a round is over, clearing the scores.
+     */
+    static final int RESET_GAME = 10;
+
+    /**
+     * Upper bound on the number of legal actions for a single player.
+     */
+    static final int MAX_ACTIONS = 128;
+
+    /**
+     * Number of bits used for the argument of an action.
+     */
+    private static final int ARG_BITS = 8;
+    /**
+     * Mask for the argument of an action.
+     */
+    private static final int ARG_MASK = (1 << ARG_BITS) - 1;
+
+    private GameAction() {
+    }
+
+    /**
+     * Encode an action.
+     *
+     * @param type the type of the action
+     * @param arg  the argument of the action, between 0 and 255 inclusive
+     * @return the encoded action
+     */
+    static int of(int type, int arg) {
+        return (type << ARG_BITS) | arg;
+    }
+
+    /**
+     * Encode an action without an argument.
+     *
+     * @param type the type of the action
+     * @return the encoded action
+     */
+    static int of(int type) {
+        return type << ARG_BITS;
+    }
+
+    /**
+     * Encode an action with a boolean argument.
+     *
+     * @param type the type of the action
+     * @param arg  the argument of the action
+     * @return the encoded action
+     */
+    static int of(int type, boolean arg) {
+        return of(type, arg ? 1 : 0);
+    }
+
+    /**
+     * @param action an encoded action
+     * @return the type of the action
+     */
+    static int type(int action) {
+        return action >>> ARG_BITS;
+    }
+
+    /**
+     * @param action an encoded action
+     * @return the argument of the action
+     */
+    static int arg(int action) {
+        return action & ARG_MASK;
+    }
+
+    /**
+     * @param action an encoded action
+     * @return a readable representation of the action
+     */
+    static String toString(int action) {
+        int arg = arg(action);
+        return switch (type(action)) {
+            case PLAY_CARD -> "playCard(" + arg + ")";
+            case DRAW_CARD -> "drawCard";
+            case PLAY_DRAWN_CARD -> "playDrawnCard(" + (arg != 0) + ")";
+            case CALL_UNO -> "callUno";
+            case CALL_LATE_UNO -> "callLateUno";
+            case CHALLENGE_UNO -> "challengeUno(" + arg + ")";
+            case CHANGE_COLOR -> "changeColor(" + CardColor.values()[arg] + ")";
+            case CHALLENGE_DRAW_FOUR -> "challengeDrawFour(" + (arg != 0) + ")";
+            case START_ROUND -> "startRound";
+            case RESET_ROUND -> "resetRound";
+            case RESET_GAME -> "resetGame";
+            default -> "unknown(" + action + ")";
+        };
+    }
+}
@@ -13,6 +13,7 @@ class GameData {
     private final int[][] scores;
     private final boolean canCallUno;
     private final boolean canChallengeUno;
+    private final boolean calledUno;
     private final boolean isGameOver;
     private final CardColor wildColor;
     private final Card topCard;
@@ -26,24 +27,25 @@ class GameData {
     GameData(@NotNull Game game) {
         this(game.getActivePlayer(), game.getLastPlayed(),
             game.getLastAttacked(), game.getScores(), game.canCallUno(),
-            game.canChallengeUno(), game.isGameOver(), game.getWildColor(),
-            game.getTopCard(), game.getPlayableCards(),
+            game.canChallengeUno(), game.hasCalledUno(), game.isGameOver(),
+            game.getWildColor(), game.getTopCard(), game.getPlayableCards(),
             game.getLastDrawnCards(), game.getHands(), game.getDirection(),
             game.getState(), game.getLastMove());
     }
 
-    private GameData(int activePlayer, int lastPlayed, int lastAttacked,
-                     int[][] scores, boolean canCallUno,
-                     boolean canChallengeUno, boolean isGameOver,
-                     CardColor wildColor, Card topCard, Card[] playableCards,
-                     Card[] lastDrawnCards, Card[][] hands, Direction direction,
-                     GameState state, GameMove lastMove) {
+    GameData(int activePlayer, int lastPlayed, int lastAttacked,
+             int[][] scores, boolean canCallUno, boolean canChallengeUno,
+             boolean calledUno, boolean isGameOver, CardColor wildColor,
+             Card topCard, Card[] playableCards, Card[] lastDrawnCards,
+             Card[][] hands, Direction direction, GameState state,
+             GameMove lastMove) {
         this.activePlayer = activePlayer;
         this.lastPlayed = lastPlayed;
         this.lastAttacked = lastAttacked;
         this.scores = scores;
         this.canCallUno = canCallUno;
         this.canChallengeUno = canChallengeUno;
+        this.calledUno = calledUno;
         this.isGameOver = isGameOver;
         this.wildColor = wildColor;
         this.topCard = topCard;
@@ -79,6 +81,10 @@ class GameData {
         return canChallengeUno;
     }
 
+    public boolean calledUno() {
+        return calledUno;
+    }
+
     public boolean isGameOver() {
         return isGameOver;
     }
@@ -114,4 +120,24 @@ class GameData {
     public GameMove lastMove() {
         return lastMove;
     }
+
+    /**
+     * Check whether a player may make a move, by the same rules as
+     * {@code Game.validate}.
+     *
+     * @param player the index of the player making the move
+     * @param action the action, encoded as described in {@code GameAction}
+     * @return {@code MoveResult.OK} if the action is legal, and the reason
+     * it is not otherwise
+     */
+    MoveResult validate(int player, int action) {
+        if (state == null || hands == null) {
+            return MoveResult.WRONG_STATE;
+        }
+        int numPlayableCards =
+            (playableCards == null) ? 0 : playableCards.length;
+        return MoveRules.validate(player, action, hands.length, state,
+            activePlayer, lastPlayed, numPlayableCards, canCallUno,
+            canChallengeUno, calledUno);
+    }
 }
@@ -0,0 +1,307 @@
+package uno;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * JSON encoding of {@code GameData} with hand-written streaming adapters
+ * instead of Gson's reflection. A card is written as its index in the deck
+ * and read back as the shared instance from {@code Card.fromIndex}, and an
+ * enum constant is written as its ordinal, so reading game data creates no
+ * cards and looks up no names.
+ */
+final class GameDataJson {
+    /**
+     * Gson with the adapters registered, for the game data sent between
+     * the server and its clients.
+     */
+    static final Gson GSON = new GsonBuilder()
+        .registerTypeAdapter(GameData.class, new GameDataAdapter())
+        .registerTypeAdapter(Card.class, new CardAdapter())
+        .registerTypeAdapter(CardColor.class,
+            new OrdinalAdapter<>(CardColor.values()))
+        .registerTypeAdapter(Direction.class,
+            new OrdinalAdapter<>(Direction.values()))
+        .registerTypeAdapter(GameState.class,
+            new OrdinalAdapter<>(GameState.values()))
+        .registerTypeAdapter(GameMove.class,
+            new OrdinalAdapter<>(GameMove.values()))
+        .create();
+
+    private static final CardColor[] COLORS = CardColor.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final GameState[] STATES = GameState.values();
+    private static final GameMove[] MOVES = GameMove.values();
+
+    private GameDataJson() {
+    }
+
+    /**
+     * Adapter writing game data as an object with the same keys as
+     * reflection would use. Null fields are left out.
+     */
+    private static class GameDataAdapter extends TypeAdapter<GameData> {
+        @Override
+        public void write(JsonWriter out, GameData data) throws IOException {
+            if (data == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("activePlayer").value(data.activePlayer());
+            out.name("lastPlayed").value(data.lastPlayed());
+            out.name("lastAttacked").value(data.lastAttacked());
+            if (data.scores() != null) {
+                out.name("scores").beginArray();
+                for (int[] row : data.scores()) {
+                    out.beginArray();
+                    for (int score : row) {
+                        out.value(score);
+                    }
+                    out.endArray();
+                }
+                out.endArray();
+            }
+            out.name("canCallUno").value(data.canCallUno());
+            out.name("canChallengeUno").value(data.canChallengeUno());
+            out.name("calledUno").value(data.calledUno());
+            out.name("isGameOver").value(data.isGameOver());
+            writeOrdinal(out, "wildColor", data.wildColor());
+            if (data.topCard() != null) {
+                out.name("topCard").value(data.topCard().index());
+            }
+            writeCards(out, "playableCards", data.playableCards());
+            writeCards(out, "lastDrawnCards", data.lastDrawnCards());
+            if (data.hands() != null) {
+                out.name("hands").beginArray();
+                for (Card[] hand : data.hands()) {
+                    writeCards(out, null, hand);
+                }
+                out.endArray();
+            }
+            writeOrdinal(out, "direction", data.direction());
+            writeOrdinal(out, "state", data.state());
+            writeOrdinal(out, "lastMove", data.lastMove());
+            out.endObject();
+        }
+
+        @Override
+        public GameData read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int activePlayer = 0;
+            int lastPlayed = 0;
+            int lastAttacked = 0;
+            int[][] scores = null;
+            boolean canCallUno = false;
+            boolean canChallengeUno = false;
+            boolean calledUno = false;
+            boolean isGameOver = false;
+            CardColor wildColor = null;
+            Card topCard = null;
+            Card[] playableCards = null;
+            Card[] lastDrawnCards = null;
+            Card[][] hands = null;
+            Direction direction = null;
+            GameState state = null;
+            GameMove lastMove = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                case "activePlayer" -> activePlayer = in.nextInt();
+                case "lastPlayed" -> lastPlayed = in.nextInt();
+                case "lastAttacked" -> lastAttacked = in.nextInt();
+                case "scores" -> scores = readScores(in);
+                case "canCallUno" -> canCallUno = in.nextBoolean();
+                case "canChallengeUno" -> canChallengeUno = in.nextBoolean();
+                case "calledUno" -> calledUno = in.nextBoolean();
+                case "isGameOver" -> isGameOver = in.nextBoolean();
+                case "wildColor" -> wildColor = readOrdinal(in, COLORS);
+                case "topCard" -> topCard = readCard(in);
+                case "playableCards" -> playableCards = readCards(in);
+                case "lastDrawnCards" -> lastDrawnCards = readCards(in);
+                case "hands" -> hands = readHands(in);
+                case "direction" -> direction = readOrdinal(in, DIRECTIONS);
+                case "state" -> state = readOrdinal(in, STATES);
+                case "lastMove" -> lastMove = readOrdinal(in, MOVES);
+                default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GameData(activePlayer, lastPlayed, lastAttacked,
+                scores, canCallUno, canChallengeUno, calledUno, isGameOver,
+                wildColor, topCard, playableCards, lastDrawnCards, hands,
+                direction, state, lastMove);
+        }
+
+        private static int[][] readScores(JsonReader in) throws IOException {
+            int[][] scores = new int[4][];
+            int numRows = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                int[] row = new int[8];
+                int length = 0;
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (length == row.length) {
+                        row = Arrays.copyOf(row, length * 2);
+                    }
+                    row[length++] = in.nextInt();
+                }
+                in.endArray();
+                if (numRows == scores.length) {
+                    scores = Arrays.copyOf(scores, numRows * 2);
+                }
+                scores[numRows++] = Arrays.copyOf(row, length);
+            }
+            in.endArray();
+            return Arrays.copyOf(scores, numRows);
+        }
+
+        private static Card[][] readHands(JsonReader in) throws IOException {
+            Card[][] hands = new Card[Game.MAX_PLAYERS][];
+            int numHands = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (numHands == hands.length) {
+                    hands = Arrays.copyOf(hands, numHands * 2);
+                }
+                hands[numHands++] = readCards(in);
+            }
+            in.endArray();
+            return Arrays.copyOf(hands, numHands);
+        }
+
+        private static void writeCards(JsonWriter out, String name,
+                                       Card[] cards) throws IOException {
+            if (cards == null) {
+                return;
+            }
+            if (name != null) {
+                out.name(name);
+            }
+            out.beginArray();
+            for (Card card : cards) {
+                out.value(card.index());
+            }
+            out.endArray();
+        }
+
+        private static void writeOrdinal(JsonWriter out, String name,
+                                         Enum<?> constant) throws IOException {
+            if (constant != null) {
+                out.name(name).value(constant.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Adapter writing a card as its index in the deck.
+     */
+    private static class CardAdapter extends TypeAdapter<Card> {
+        @Override
+        public void write(JsonWriter out, Card card) throws IOException {
+            if (card == null) {
+                out.nullValue();
+            } else {
+                out.value(card.index());
+            }
+        }
+
+        @Override
+        public Card read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return readCard(in);
+        }
+    }
+
+    /**
+     * Adapter writing an enum constant as its ordinal.
+     *
+     * @param <E> the enum
+     */
+    private static class OrdinalAdapter<E extends Enum<E>>
+        extends TypeAdapter<E> {
+        private final E[] constants;
+
+        OrdinalAdapter(E[] constants) {
+            this.constants = constants;
+        }
+
+        @Override
+        public void write(JsonWriter out, E constant) throws IOException {
+            if (constant == null) {
+                out.nullValue();
+            } else {
+                out.value(constant.ordinal());
+            }
+        }
+
+        @Override
+        public E read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return readOrdinal(in, constants);
+        }
+    }
+
+    /**
+     * Read an array of cards written as indices.
+     *
+     * @param in the reader
+     * @return the cards
+     * @throws IOException if the JSON cannot be read
+     */
+    private static Card[] readCards(@NotNull JsonReader in)
+        throws IOException {
+        Card[] cards = new Card[16];
+        int length = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (length == cards.length) {
+                cards = Arrays.copyOf(cards, length * 2);
+            }
+            cards[length++] = readCard(in);
+        }
+        in.endArray();
+        return Arrays.copyOf(cards, length);
+    }
+
+    private static Card readCard(JsonReader in) throws IOException {
+        int index = in.nextInt();
+        if (index < 0 || index >= Card.NUM_CARDS) {
+            throw new JsonSyntaxException("Invalid card index: " + index);
+        }
+        return Card.fromIndex(index);
+    }
+
+    private static <E> E readOrdinal(JsonReader in, E[] constants)
+        throws IOException {
+        int ordinal = in.nextInt();
+        if (ordinal < 0 || ordinal >= constants.length) {
+            throw new JsonSyntaxException("Invalid ordinal: " + ordinal);
+        }
+        return constants[ordinal];
+    }
+}
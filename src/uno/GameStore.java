@@ -0,0 +1,398 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact store for games that sit idle between moves, such as the tables
+ * of turn-based games that last for days. A {@code Game} is an object graph
+ * of several kilobytes; here each game is a row of primitive columns
+ * instead: a bit set of card indices per hand, the draw pile and discard
+ * pile as card indices in one byte array, the scores, and the rest of the
+ * state packed into two ints, a few hundred bytes in all. The columns are
+ * shared by every game in the store, so a row adds no objects or headers.
+ *
+ * <p>A game is taken out as a {@code Game} to apply a move with the usual
+ * rules and put back afterwards. Rows are converted to and from the
+ * snapshots written by {@code Game.writeSnapshot}, so a game taken out
+ * continues exactly like the one put in. All games in a store have the same
+ * number of players, so every column has a fixed stride. Not thread-safe.
+ */
+class GameStore {
+    /**
+     * Most cards a player can draw in one move.
+     */
+    private static final int MAX_LAST_DRAWN = 6;
+    /**
+     * Number of longs in the bit set of a hand.
+     */
+    private static final int HAND_WORDS = (Card.NUM_CARDS + 63) / 64;
+    private static final int INITIAL_CAPACITY = 16;
+
+    /*
+     * Layout of the turn column, from the lowest bit: state (3 bits), last
+     * move + 1 (4), direction + 1 (2), active player + 1 (4), last player
+     * + 1 (4), last attacked player + 1 (4), the game's flags (4), whether
+     * the goal was reached (1).
+     */
+    private static final int MOVE_SHIFT = 3;
+    private static final int DIRECTION_SHIFT = 7;
+    private static final int ACTIVE_SHIFT = 9;
+    private static final int PLAYED_SHIFT = 13;
+    private static final int ATTACKED_SHIFT = 17;
+    private static final int FLAGS_SHIFT = 21;
+    private static final int GOAL_SHIFT = 25;
+    /*
+     * Layout of the piles column, from the lowest bit: draw pile size (7
+     * bits), discard pile size (7), wild color (3), color before the last
+     * wild card (3), number of cards last drawn (3).
+     */
+    private static final int DISCARD_SHIFT = 7;
+    private static final int WILD_SHIFT = 14;
+    private static final int BEFORE_WILD_SHIFT = 17;
+    private static final int DRAWN_SHIFT = 20;
+
+    private static final GameState[] STATES = GameState.values();
+
+    private final int numPlayers;
+    /**
+     * Buffer for converting between rows and snapshots.
+     */
+    private final ByteBuffer snapshot =
+        ByteBuffer.allocate(Game.MAX_SNAPSHOT_SIZE);
+    /**
+     * Rows in use.
+     */
+    private final BitSet used = new BitSet();
+
+    /**
+     * State of each game's random number generator.
+     */
+    private long[] randomStates;
+    /**
+     * Bit sets of card indices, {@code HAND_WORDS} per hand and one hand
+     * per player.
+     */
+    private long[] hands;
+    /**
+     * Bit set of the active player's playable cards.
+     */
+    private long[] playable;
+    /**
+     * Card indices of the draw pile followed by the discard pile from
+     * bottom to top, {@code Card.NUM_CARDS} per game.
+     */
+    private byte[] piles;
+    /**
+     * Card indices last drawn, in the order drawn.
+     */
+    private byte[] lastDrawn;
+    /**
+     * Four scores per player, in the order the scoreboard writes them.
+     */
+    private int[] scores;
+    private int[] turns;
+    private int[] pileSizes;
+    /**
+     * Rows freed by {@code remove}, most recent last.
+     */
+    private int[] freeRows = new int[INITIAL_CAPACITY];
+    private int numFreeRows;
+    /**
+     * Number of rows ever used, which are all below it.
+     */
+    private int numRows;
+    private int size;
+
+    /**
+     * @param numPlayers number of players in each game
+     */
+    GameStore(int numPlayers) {
+        if (numPlayers < Game.MIN_PLAYERS || numPlayers > Game.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Invalid number of players.");
+        }
+        this.numPlayers = numPlayers;
+        randomStates = new long[INITIAL_CAPACITY];
+        hands = new long[INITIAL_CAPACITY * numPlayers * HAND_WORDS];
+        playable = new long[INITIAL_CAPACITY * HAND_WORDS];
+        piles = new byte[INITIAL_CAPACITY * Card.NUM_CARDS];
+        lastDrawn = new byte[INITIAL_CAPACITY * MAX_LAST_DRAWN];
+        scores = new int[INITIAL_CAPACITY * numPlayers * 4];
+        turns = new int[INITIAL_CAPACITY];
+        pileSizes = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @param numPlayers number of players in each game
+     * @return the number of bytes each game takes in a store, not counting
+     * unused capacity
+     */
+    static int bytesPerGame(int numPlayers) {
+        return Long.BYTES * (1 + (numPlayers + 1) * HAND_WORDS)
+            + Card.NUM_CARDS + MAX_LAST_DRAWN
+            + Integer.BYTES * (4 * numPlayers + 2);
+    }
+
+    /**
+     * @return the number of games in the store
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Add a game to the store.
+     *
+     * @param game the game, whose random number generator must be a
+     *             {@code SnapshotRandom}
+     * @return the row of the game, which stays the same until it is removed
+     * @throws IllegalArgumentException if the game has a different number of
+     *                                  players than the store
+     */
+    int add(@NotNull Game game) {
+        writeSnapshot(game);
+        int row;
+        if (numFreeRows > 0) {
+            row = freeRows[--numFreeRows];
+        } else {
+            row = numRows++;
+            if (row == turns.length) {
+                grow();
+            }
+        }
+        readRow(row);
+        used.set(row);
+        size++;
+        return row;
+    }
+
+    /**
+     * Replace the game in a row, such as after applying a move to the game
+     * taken out of it.
+     *
+     * @param row  the row of the game
+     * @param game the game, whose random number generator must be a
+     *             {@code SnapshotRandom}
+     * @throws IllegalArgumentException if there is no game in the row, or
+     *                                  the game has a different number of
+     *                                  players than the store
+     */
+    void put(int row, @NotNull Game game) {
+        checkRow(row);
+        writeSnapshot(game);
+        readRow(row);
+    }
+
+    /**
+     * Take a game out of the store, leaving it in its row. The game is a
+     * new object each time, so moves applied to it are only kept if it is
+     * put back.
+     *
+     * @param row the row of the game
+     * @return the game
+     * @throws IllegalArgumentException if there is no game in the row
+     */
+    Game get(int row) {
+        checkRow(row);
+        snapshot.clear();
+        writeRow(row);
+        snapshot.flip();
+        return new Game(snapshot);
+    }
+
+    /**
+     * Remove a game from the store, freeing its row for another game.
+     *
+     * @param row the row of the game
+     * @throws IllegalArgumentException if there is no game in the row
+     */
+    void remove(int row) {
+        checkRow(row);
+        used.clear(row);
+        size--;
+        if (numFreeRows == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, 2 * numFreeRows);
+        }
+        freeRows[numFreeRows++] = row;
+    }
+
+    /**
+     * @param row the row of a game
+     * @return the game's state, without taking the game out
+     */
+    GameState getState(int row) {
+        checkRow(row);
+        return STATES[turns[row] & 7];
+    }
+
+    /**
+     * @param row the row of a game
+     * @return the game's active player, without taking the game out
+     */
+    int getActivePlayer(int row) {
+        checkRow(row);
+        return ((turns[row] >>> ACTIVE_SHIFT) & 15) - 1;
+    }
+
+    /**
+     * Write a snapshot of a game to {@code snapshot}, ready to be read.
+     */
+    private void writeSnapshot(Game game) {
+        if (game.numPlayers != numPlayers) {
+            throw new IllegalArgumentException("Invalid number of players.");
+        }
+        if (game.getLastDrawnCards().length > MAX_LAST_DRAWN) {
+            throw new IllegalStateException("Too many cards drawn.");
+        }
+        snapshot.clear();
+        game.writeSnapshot(snapshot);
+        snapshot.flip();
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || !used.get(row)) {
+            throw new IllegalArgumentException("No game in row " + row + ".");
+        }
+    }
+
+    /**
+     * Double the capacity of every column.
+     */
+    private void grow() {
+        int capacity = 2 * turns.length;
+        randomStates = Arrays.copyOf(randomStates, capacity);
+        hands = Arrays.copyOf(hands, capacity * numPlayers * HAND_WORDS);
+        playable = Arrays.copyOf(playable, capacity * HAND_WORDS);
+        piles = Arrays.copyOf(piles, capacity * Card.NUM_CARDS);
+        lastDrawn = Arrays.copyOf(lastDrawn, capacity * MAX_LAST_DRAWN);
+        scores = Arrays.copyOf(scores, capacity * numPlayers * 4);
+        turns = Arrays.copyOf(turns, capacity);
+        pileSizes = Arrays.copyOf(pileSizes, capacity);
+    }
+
+    /**
+     * Fill a row from the snapshot in {@code snapshot}, in the order
+     * {@code Game.writeSnapshot} writes it.
+     */
+    private void readRow(int row) {
+        snapshot.get();
+        randomStates[row] = snapshot.getLong();
+        int pileOffset = row * Card.NUM_CARDS;
+        int drawSize = readCards(piles, pileOffset);
+        int discardSize = readCards(piles, pileOffset + drawSize);
+        int wildColor = snapshot.get();
+        int beforeWildColor = snapshot.get();
+        for (int i = 0; i < numPlayers; i++) {
+            readBits(hands, (row * numPlayers + i) * HAND_WORDS);
+        }
+        int scoreOffset = row * numPlayers * 4;
+        for (int i = 0; i < numPlayers * 4; i++) {
+            scores[scoreOffset + i] = snapshot.getInt();
+        }
+        int goalReached = snapshot.get();
+        readBits(playable, row * HAND_WORDS);
+        int drawnSize = readCards(lastDrawn, row * MAX_LAST_DRAWN);
+        int state = snapshot.get();
+        int move = snapshot.get() + 1;
+        int direction = snapshot.get() + 1;
+        int activePlayer = snapshot.get() + 1;
+        int lastPlayed = snapshot.get() + 1;
+        int lastAttacked = snapshot.get() + 1;
+        int flags = snapshot.get();
+        turns[row] = state | move << MOVE_SHIFT
+            | direction << DIRECTION_SHIFT | activePlayer << ACTIVE_SHIFT
+            | lastPlayed << PLAYED_SHIFT | lastAttacked << ATTACKED_SHIFT
+            | flags << FLAGS_SHIFT | goalReached << GOAL_SHIFT;
+        pileSizes[row] = drawSize | discardSize << DISCARD_SHIFT
+            | wildColor << WILD_SHIFT | beforeWildColor << BEFORE_WILD_SHIFT
+            | drawnSize << DRAWN_SHIFT;
+    }
+
+    /**
+     * Write a row to {@code snapshot} as {@code Game.writeSnapshot} would.
+     */
+    private void writeRow(int row) {
+        int turn = turns[row];
+        int sizes = pileSizes[row];
+        int drawSize = sizes & 127;
+        int discardSize = (sizes >>> DISCARD_SHIFT) & 127;
+        snapshot.put((byte) numPlayers);
+        snapshot.putLong(randomStates[row]);
+        int pileOffset = row * Card.NUM_CARDS;
+        writeCards(piles, pileOffset, drawSize);
+        writeCards(piles, pileOffset + drawSize, discardSize);
+        snapshot.put((byte) ((sizes >>> WILD_SHIFT) & 7));
+        snapshot.put((byte) ((sizes >>> BEFORE_WILD_SHIFT) & 7));
+        for (int i = 0; i < numPlayers; i++) {
+            writeBits(hands, (row * numPlayers + i) * HAND_WORDS);
+        }
+        int scoreOffset = row * numPlayers * 4;
+        for (int i = 0; i < numPlayers * 4; i++) {
+            snapshot.putInt(scores[scoreOffset + i]);
+        }
+        snapshot.put((byte) ((turn >>> GOAL_SHIFT) & 1));
+        writeBits(playable, row * HAND_WORDS);
+        writeCards(lastDrawn, row * MAX_LAST_DRAWN,
+            (sizes >>> DRAWN_SHIFT) & 7);
+        snapshot.put((byte) (turn & 7));
+        snapshot.put((byte) (((turn >>> MOVE_SHIFT) & 15) - 1));
+        snapshot.put((byte) (((turn >>> DIRECTION_SHIFT) & 3) - 1));
+        snapshot.put((byte) (((turn >>> ACTIVE_SHIFT) & 15) - 1));
+        snapshot.put((byte) (((turn >>> PLAYED_SHIFT) & 15) - 1));
+        snapshot.put((byte) (((turn >>> ATTACKED_SHIFT) & 15) - 1));
+        snapshot.put((byte) ((turn >>> FLAGS_SHIFT) & 15));
+    }
+
+    /**
+     * Copy a list of cards from the snapshot.
+     *
+     * @return the number of cards
+     */
+    private int readCards(byte[] column, int offset) {
+        int size = snapshot.getShort();
+        snapshot.get(column, offset, size);
+        return size;
+    }
+
+    private void writeCards(byte[] column, int offset, int size) {
+        snapshot.putShort((short) size);
+        snapshot.put(column, offset, size);
+    }
+
+    /**
+     * Read a list of cards from the snapshot into a bit set. The list must
+     * be in the order of the card indices, as hands and the playable cards
+     * are.
+     */
+    private void readBits(long[] column, int offset) {
+        Arrays.fill(column, offset, offset + HAND_WORDS, 0);
+        int size = snapshot.getShort();
+        for (int i = 0; i < size; i++) {
+            int index = snapshot.get() & 0xFF;
+            column[offset + (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * Write a bit set to the snapshot as a list of cards in the order of
+     * their indices.
+     */
+    private void writeBits(long[] column, int offset) {
+        int size = 0;
+        for (int i = 0; i < HAND_WORDS; i++) {
+            size += Long.bitCount(column[offset + i]);
+        }
+        snapshot.putShort((short) size);
+        for (int i = 0; i < HAND_WORDS; i++) {
+            long word = column[offset + i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                snapshot.put((byte) (i * 64 + bit));
+                word &= word - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package uno;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+public class GatewayMain {
+    public static void main(String[] args) throws IOException {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(System.in));
+        System.out.print("Enter port: ");
+        int port = Integer.parseInt(reader.readLine());
+        UnoGateway gateway = new UnoGateway(port);
+        System.out.print("Enter backends (host:port, separated by spaces): ");
+        for (String address : reader.readLine().strip().split("\\s+")) {
+            if (!address.isEmpty()) {
+                gateway.addBackend(address);
+            }
+        }
+        Thread acceptor = new Thread(gateway::start, "gateway-acceptor");
+        acceptor.start();
+        System.out.println("Commands: add host:port, drain host:port, list, "
+            + "quit");
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] command = line.strip().split("\\s+");
+            try {
+                switch (command[0]) {
+                case "add" -> gateway.addBackend(command[1]);
+                case "drain" -> System.out.println(
+                    gateway.drainBackend(command[1]) ? "Drained."
+                        : "Draining; waiting for tables to finish.");
+                case "list" -> System.out.print(gateway.describeBackends());
+                case "quit" -> {
+                    gateway.stop();
+                    return;
+                }
+                default -> System.out.println("Unknown command.");
+                }
+            } catch (ArrayIndexOutOfBoundsException
+                     | IllegalArgumentException e) {
+                System.out.println("Invalid command.");
+            }
+        }
+    }
+}
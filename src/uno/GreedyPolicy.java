@@ -0,0 +1,72 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A policy that makes the first move it can. It calls Uno and challenges
+ * Uno whenever possible, plays the first playable card or else draws,
+ * always plays a drawn card, changes to the color it holds the most of and
+ * never challenges a draw four. Choosing a move allocates nothing.
+ */
+class GreedyPolicy implements ClientPolicy {
+    /**
+     * Card colors, indexed by ordinal.
+     */
+    private static final CardColor[] COLORS = CardColor.values();
+
+    @Override
+    public int chooseAction(@NotNull GameData data, int player) {
+        GameState state = data.state();
+        if (state == GameState.PLAY_CARD && data.canChallengeUno()) {
+            if (player == data.lastPlayed()) {
+                return GameAction.of(GameAction.CALL_LATE_UNO);
+            }
+            return GameAction.of(GameAction.CHALLENGE_UNO, player);
+        }
+        if (player != data.activePlayer()) {
+            return -1;
+        }
+        if (data.canCallUno() && (state == GameState.PLAY_CARD
+            || state == GameState.PLAY_DRAWN_CARD)) {
+            return GameAction.of(GameAction.CALL_UNO);
+        }
+        return switch (state) {
+            case PLAY_CARD -> (data.playableCards().length > 0)
+                ? GameAction.of(GameAction.PLAY_CARD, 0)
+                : GameAction.of(GameAction.DRAW_CARD);
+            case PLAY_DRAWN_CARD ->
+                GameAction.of(GameAction.PLAY_DRAWN_CARD, true);
+            case CHANGE_COLOR -> GameAction.of(GameAction.CHANGE_COLOR,
+                chooseColor(data.hands()[player]).ordinal());
+            case CHALLENGE_DRAW_FOUR ->
+                GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, false);
+            default -> -1;
+        };
+    }
+
+    /**
+     * @param hand the player's hand
+     * @return the color the hand has the most cards of, or red if it has
+     * only wild cards
+     */
+    private static CardColor chooseColor(@NotNull Card[] hand) {
+        CardColor best = CardColor.RED;
+        int bestCount = 0;
+        for (CardColor color : COLORS) {
+            if (color == CardColor.NONE) {
+                continue;
+            }
+            int count = 0;
+            for (Card card : hand) {
+                if (card.color() == color) {
+                    count++;
+                }
+            }
+            if (count > bestCount) {
+                best = color;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
@@ -2,7 +2,9 @@ package uno;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -20,12 +22,56 @@ public class Hand {
      * Set of cards in the player hand.
      */
     private final Set<Card> cardSet;
+    /**
+     * Number of cards of each color in the player hand, indexed by ordinal.
+     */
+    private final int[] colorCounts;
+    /**
+     * Number of cards of each face in the player hand, indexed by face.
+     */
+    private final int[] faceCounts;
 
     /**
      * Create a new player hand.
      */
     Hand() {
         cardSet = new TreeSet<>();
+        colorCounts = new int[CardColor.values().length];
+        faceCounts = new int[Card.NUM_FACES];
+    }
+
+    /**
+     * Create a copy of a player hand.
+     *
+     * @param other the player hand to copy
+     */
+    Hand(@NotNull Hand other) {
+        cardSet = new TreeSet<>(other.cardSet);
+        colorCounts = other.colorCounts.clone();
+        faceCounts = other.faceCounts.clone();
+    }
+
+    /**
+     * Read a player hand written by {@code write}.
+     *
+     * @param buffer the buffer to read from
+     */
+    Hand(@NotNull ByteBuffer buffer) {
+        this();
+        List<Card> cards = new ArrayList<>();
+        Card.readCards(buffer, cards);
+        for (Card card : cards) {
+            add(card);
+        }
+    }
+
+    /**
+     * Write the player hand to a buffer.
+     *
+     * @param buffer the buffer to write to
+     */
+    void write(@NotNull ByteBuffer buffer) {
+        Card.writeCards(buffer, cardSet);
     }
 
     /**
@@ -45,6 +91,8 @@ public class Hand {
         if (!cardSet.add(card)) {
             throw new IllegalStateException("Hand already contains card.");
         }
+        colorCounts[card.color().ordinal()]++;
+        faceCounts[card.face()]++;
     }
 
     /**
@@ -58,6 +106,8 @@ public class Hand {
         if (!cardSet.remove(card)) {
             throw new IllegalStateException("Hand did not contain card.");
         }
+        colorCounts[card.color().ordinal()]--;
+        faceCounts[card.face()]--;
     }
 
     /**
@@ -78,6 +128,8 @@ public class Hand {
     List<Card> clear() {
         List<Card> oldCards = new ArrayList<>(cardSet);
         cardSet.clear();
+        Arrays.fill(colorCounts, 0);
+        Arrays.fill(faceCounts, 0);
         return oldCards;
     }
 
@@ -89,12 +141,39 @@ public class Hand {
      * and false otherwise
      */
     boolean containsColor(@NotNull CardColor color) {
+        return colorCounts[color.ordinal()] > 0;
+    }
+
+    /**
+     * @param color color to count
+     * @return the number of cards of color {@code color} in the player hand
+     */
+    int countColor(@NotNull CardColor color) {
+        return colorCounts[color.ordinal()];
+    }
+
+    /**
+     * @param face face to count, as given by {@code Card.face()}
+     * @return the number of cards with the face in the player hand
+     */
+    int countFace(int face) {
+        return faceCounts[face];
+    }
+
+    /**
+     * Add the cards in the player hand that are playable on a discard pile
+     * to a list, in sorted order.
+     *
+     * @param discardPile the discard pile
+     * @param playable    list to add the playable cards to
+     */
+    void getPlayableCards(@NotNull DiscardPile discardPile,
+                          @NotNull List<Card> playable) {
         for (Card card : cardSet) {
-            if (card.color() == color) {
-                return true;
+            if (discardPile.isPlayable(card)) {
+                playable.add(card);
             }
         }
-        return false;
     }
 
     /**
@@ -0,0 +1,82 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping keys to nodes. Each node is placed on the
+ * ring at several points, and a key belongs to the first node at or after
+ * its hash, so adding or removing a node only moves the keys next to that
+ * node's points. Not thread-safe.
+ */
+class HashRing {
+    /**
+     * Number of points on the ring for each node.
+     */
+    static final int POINTS_PER_NODE = 128;
+
+    private final TreeMap<Long, String> ring;
+
+    /**
+     * Create an empty ring.
+     */
+    HashRing() {
+        ring = new TreeMap<>();
+    }
+
+    /**
+     * Add a node to the ring.
+     *
+     * @param node the node
+     */
+    void add(@NotNull String node) {
+        for (int i = 0; i < POINTS_PER_NODE; i++) {
+            ring.put(hash(node + "#" + i), node);
+        }
+    }
+
+    /**
+     * Remove a node from the ring.
+     *
+     * @param node the node
+     */
+    void remove(@NotNull String node) {
+        for (int i = 0; i < POINTS_PER_NODE; i++) {
+            ring.remove(hash(node + "#" + i), node);
+        }
+    }
+
+    /**
+     * @param key a key
+     * @return the node the key belongs to, or null if the ring is empty
+     */
+    String get(@NotNull String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * @param string a string
+     * @return a 64-bit hash of the string that is the same in every process
+     */
+    private static long hash(String string) {
+        // FNV-1a, then the MurmurHash3 finalizer to spread nearby strings
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : string.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,245 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tracks the liveness of any number of connections with one thread, using
+ * a hashed timing wheel. Each connection's heartbeat sits in the slot of
+ * the tick it is next due at, so a tick only visits the heartbeats due
+ * then, and registering, hearing from and cancelling a heartbeat are all
+ * constant time. A connection silent for longer than the ping interval is
+ * pinged, and one silent for longer than the timeout is declared dead
+ * within one tick of it.
+ *
+ * <p>The callbacks run on the timer's thread, so they must not block.
+ */
+class HeartbeatTimer implements Closeable {
+    /**
+     * Default time between ticks.
+     */
+    private static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+    /**
+     * Default number of slots in the wheel, which covers about 51 seconds
+     * at the default tick before heartbeats need more than one turn.
+     */
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final long tick;
+    /**
+     * Heads of the lists of heartbeats in each slot, guarded by
+     * {@code lock}.
+     */
+    private final Heartbeat[] wheel;
+    private final Object lock = new Object();
+    private final Thread thread;
+
+    /**
+     * Number of ticks processed, guarded by {@code lock}.
+     */
+    private long tickCount;
+    private volatile boolean closed;
+
+    /**
+     * @param tick      time between ticks, which bounds how late a
+     *                  heartbeat is checked
+     * @param wheelSize number of slots in the wheel
+     */
+    HeartbeatTimer(@NotNull Duration tick, int wheelSize) {
+        if (tick.isNegative() || tick.isZero() || wheelSize <= 0) {
+            throw new IllegalArgumentException("Invalid timer.");
+        }
+        this.tick = tick.toNanos();
+        wheel = new Heartbeat[wheelSize];
+        thread = new Thread(this::run, "heartbeat-timer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the timer shared by the whole process, with the default tick
+     * and wheel size
+     */
+    static HeartbeatTimer common() {
+        return CommonHolder.COMMON;
+    }
+
+    /**
+     * Start tracking a connection.
+     *
+     * @param interval time a connection may be silent before it is pinged
+     * @param timeout  time a connection may be silent before it is dead,
+     *                 at least the interval
+     * @param ping     called to ping the connection
+     * @param dead     called once when the connection is dead, after which
+     *                 it is no longer tracked
+     * @return the connection's heartbeat
+     */
+    Heartbeat register(@NotNull Duration interval, @NotNull Duration timeout,
+                       @NotNull Runnable ping, @NotNull Runnable dead) {
+        if (interval.isNegative() || interval.isZero()
+            || timeout.compareTo(interval) < 0) {
+            throw new IllegalArgumentException("Invalid heartbeat.");
+        }
+        Heartbeat heartbeat = new Heartbeat(interval.toNanos(),
+            timeout.toNanos(), ping, dead);
+        heartbeat.heard(System.nanoTime());
+        schedule(heartbeat, heartbeat.interval);
+        return heartbeat;
+    }
+
+    /**
+     * Stop the timer. Heartbeats are no longer checked.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Put a heartbeat in the slot of the tick it is next due at.
+     *
+     * @param heartbeat the heartbeat
+     * @param delay     time until it is due in nanoseconds
+     */
+    private void schedule(Heartbeat heartbeat, long delay) {
+        long ticks = Math.max(1, (delay + tick - 1) / tick);
+        synchronized (lock) {
+            // the next tick processed is tickCount
+            long due = tickCount + ticks - 1;
+            int slot = (int) (due % wheel.length);
+            heartbeat.rounds = (ticks - 1) / wheel.length;
+            heartbeat.next = wheel[slot];
+            wheel[slot] = heartbeat;
+        }
+    }
+
+    /**
+     * Process ticks until the timer is closed, catching up at once if the
+     * thread falls behind.
+     */
+    private void run() {
+        long nextTick = System.nanoTime() + tick;
+        while (!closed) {
+            long delay = nextTick - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+                continue;
+            }
+            nextTick += tick;
+            Heartbeat due = null;
+            synchronized (lock) {
+                int slot = (int) (tickCount % wheel.length);
+                Heartbeat heartbeat = wheel[slot];
+                wheel[slot] = null;
+                tickCount++;
+                while (heartbeat != null) {
+                    Heartbeat next = heartbeat.next;
+                    if (heartbeat.cancelled) {
+                        heartbeat.next = null;
+                    } else if (heartbeat.rounds > 0) {
+                        // due on a later turn of the wheel
+                        heartbeat.rounds--;
+                        heartbeat.next = wheel[slot];
+                        wheel[slot] = heartbeat;
+                    } else {
+                        heartbeat.next = due;
+                        due = heartbeat;
+                    }
+                    heartbeat = next;
+                }
+            }
+            long now = System.nanoTime();
+            while (due != null) {
+                Heartbeat next = due.next;
+                due.next = null;
+                try {
+                    check(due, now);
+                } catch (RuntimeException e) {
+                    // one failing callback must not stop the others
+                    System.out.println("Heartbeat callback failed: " + e);
+                }
+                due = next;
+            }
+        }
+    }
+
+    /**
+     * Ping a heartbeat's connection or declare it dead, depending on how
+     * long it has been silent, and schedule its next check if it is alive.
+     */
+    private void check(Heartbeat heartbeat, long now) {
+        long silence = now - heartbeat.lastHeard;
+        if (silence >= heartbeat.timeout) {
+            heartbeat.cancelled = true;
+            heartbeat.dead.run();
+            return;
+        }
+        schedule(heartbeat,
+            Math.min(heartbeat.interval, heartbeat.timeout - silence));
+        if (silence >= heartbeat.interval) {
+            heartbeat.ping.run();
+        }
+    }
+
+    /**
+     * The liveness of one connection.
+     */
+    static final class Heartbeat {
+        private final long interval;
+        private final long timeout;
+        private final Runnable ping;
+        private final Runnable dead;
+        /**
+         * Time the connection was last heard from in nanoseconds.
+         */
+        private volatile long lastHeard;
+        private volatile boolean cancelled;
+        /**
+         * Next heartbeat in the same slot, guarded by the timer's lock.
+         */
+        private Heartbeat next;
+        /**
+         * Turns of the wheel left before the heartbeat is due, guarded by
+         * the timer's lock.
+         */
+        private long rounds;
+
+        private Heartbeat(long interval, long timeout, Runnable ping,
+                          Runnable dead) {
+            this.interval = interval;
+            this.timeout = timeout;
+            this.ping = ping;
+            this.dead = dead;
+        }
+
+        /**
+         * Record that the connection was heard from.
+         *
+         * @param now the current time, from {@code System.nanoTime}
+         */
+        void heard(long now) {
+            lastHeard = now;
+        }
+
+        /**
+         * Stop tracking the connection. It is dropped from the wheel when
+         * next due.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * Holder of the common timer, so it is only started when first used.
+     */
+    private static final class CommonHolder {
+        private static final HeartbeatTimer COMMON =
+            new HeartbeatTimer(DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+    }
+}
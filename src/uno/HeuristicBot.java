@@ -0,0 +1,154 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A bot that chooses moves by simple rules. It plays action cards against a
+ * next player who is close to winning, keeps wild cards for later, changes
+ * to the color it holds the most of, and challenges a draw four when card
+ * counting says the challenge is likely to succeed. Choosing a move
+ * allocates nothing, so the bot is cheap enough to drive rollouts.
+ */
+class HeuristicBot implements Bot {
+    /**
+     * Card colors, indexed by ordinal.
+     */
+    private static final CardColor[] COLORS = CardColor.values();
+    /**
+     * Number of cards in a full deck.
+     */
+    private static final int DECK_SIZE;
+    /**
+     * Number of cards of each color in a full deck, indexed by ordinal.
+     */
+    private static final int[] COLOR_TOTALS = new int[COLORS.length];
+    /**
+     * Hand size of the next player at or below which attacking them takes
+     * priority.
+     */
+    private static final int THREAT_HAND_SIZE = 2;
+    /**
+     * Probability above which a draw four challenge is worth making: a
+     * failed challenge costs 6 cards against 4 for accepting, so the
+     * challenge must succeed at least a third of the time.
+     */
+    private static final double CHALLENGE_THRESHOLD = 1.0 / 3;
+
+    static {
+        int deckSize = 0;
+        for (CardType type : CardType.values()) {
+            if (type.isWild()) {
+                COLOR_TOTALS[CardColor.NONE.ordinal()] += type.getFreq();
+                deckSize += type.getFreq();
+            } else {
+                for (CardColor color : COLORS) {
+                    if (color != CardColor.NONE) {
+                        COLOR_TOTALS[color.ordinal()] += type.getFreq();
+                        deckSize += type.getFreq();
+                    }
+                }
+            }
+        }
+        DECK_SIZE = deckSize;
+    }
+
+    @Override
+    public int chooseAction(@NotNull Game game, int player) {
+        GameState state = game.getState();
+        if (state == GameState.PLAY_CARD && game.canChallengeUno()) {
+            if (player == game.getLastPlayed()) {
+                return GameAction.of(GameAction.CALL_LATE_UNO);
+            }
+            return GameAction.of(GameAction.CHALLENGE_UNO, player);
+        }
+        if (game.canCallUno() && (state == GameState.PLAY_CARD
+            || state == GameState.PLAY_DRAWN_CARD)) {
+            return GameAction.of(GameAction.CALL_UNO);
+        }
+        return switch (state) {
+            case PLAY_CARD -> choosePlay(game, player);
+            case PLAY_DRAWN_CARD ->
+                GameAction.of(GameAction.PLAY_DRAWN_CARD, true);
+            case CHANGE_COLOR -> GameAction.of(GameAction.CHANGE_COLOR,
+                chooseColor(game, player).ordinal());
+            case CHALLENGE_DRAW_FOUR -> GameAction.of(
+                GameAction.CHALLENGE_DRAW_FOUR, shouldChallenge(game, player));
+            default -> throw new IllegalStateException("No legal actions.");
+        };
+    }
+
+    /**
+     * Choose a card to play, or draw if there is none.
+     *
+     * @param game   the game
+     * @param player the index of the active player
+     * @return the chosen action
+     */
+    private static int choosePlay(Game game, int player) {
+        int numPlayable = game.getNumPlayableCards();
+        if (numPlayable == 0) {
+            return GameAction.of(GameAction.DRAW_CARD);
+        }
+        boolean threatened =
+            game.getHandSize(game.getNextPlayer()) <= THREAT_HAND_SIZE;
+        int best = 0;
+        int bestScore = Integer.MIN_VALUE;
+        for (int i = 0; i < numPlayable; i++) {
+            Card card = game.getPlayableCard(i);
+            int score = switch (card.type()) {
+                case DRAW_TWO, SKIP -> threatened ? 80 : 30;
+                case REVERSE -> (threatened && game.numPlayers == 2) ? 80 : 25;
+                case WILD_DRAW_FOUR -> threatened ? 90 : 0;
+                case WILD -> 5;
+                default -> 10 + card.type().getValue();
+            };
+            // playing the color we hold most of keeps our options open
+            score += 3 * game.countColor(player, card.color());
+            if (score > bestScore) {
+                best = i;
+                bestScore = score;
+            }
+        }
+        return GameAction.of(GameAction.PLAY_CARD, best);
+    }
+
+    /**
+     * @param game   the game
+     * @param player the index of the active player
+     * @return the color the player holds the most cards of
+     */
+    private static CardColor chooseColor(Game game, int player) {
+        CardColor best = CardColor.BLUE;
+        for (CardColor color : COLORS) {
+            if (color != CardColor.NONE && game.countColor(player, color)
+                > game.countColor(player, best)) {
+                best = color;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Estimate the chance that the player who played a draw four held a
+     * card of the previous color, from the cards the active player can see.
+     *
+     * @param game   the game
+     * @param player the index of the active player
+     * @return true if a challenge is likely enough to succeed
+     */
+    private static boolean shouldChallenge(Game game, int player) {
+        CardColor color = game.getBeforeWildColor();
+        int unseen = DECK_SIZE - game.getHandSize(player)
+            - game.getDiscardPileSize();
+        int unseenOfColor = COLOR_TOTALS[color.ordinal()]
+            - game.countColor(player, color) - game.countDiscardedColor(color);
+        int handSize = game.getHandSize(game.getLastPlayed());
+        // probability that a hand drawn from the unseen cards misses the color
+        double none = 1;
+        for (int i = 0; i < handSize && none > 0; i++) {
+            none *= (double) Math.max(0, unseen - unseenOfColor - i)
+                / Math.max(1, unseen - i);
+        }
+        return 1 - none > CHALLENGE_THRESHOLD;
+    }
+}
@@ -0,0 +1,81 @@
+package uno;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+public class HostMain {
+    public static void main(String[] args) throws IOException {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(System.in));
+        System.out.print("Enter port: ");
+        int port = Integer.parseInt(reader.readLine());
+        Bot bot = new IsmctsBot();
+        System.out.print("Use fast rule-based bots? (y/n): ");
+        if (reader.readLine().equals("y")) {
+            bot = new HeuristicBot();
+        }
+        TableHost host = new TableHost(port, bot, ForkJoinPool.commonPool());
+        System.out.print("Enter journal file (blank for none): ");
+        String journalFile = reader.readLine().strip();
+        MoveJournal journal = journalFile.isEmpty()
+            ? null : new MoveJournal(Path.of(journalFile));
+        if (journal != null) {
+            host.setJournal(journal);
+            int numUnfinished = journal.getUnfinishedTables().size();
+            if (numUnfinished > 0) {
+                System.out.println("Resuming " + numUnfinished
+                    + " unfinished games.");
+                host.resume(journal.getUnfinishedTables().values());
+            }
+        }
+        System.out.print("Enter round archive file (blank for none): ");
+        String archiveFile = reader.readLine().strip();
+        RoundArchiveWriter archive = archiveFile.isEmpty()
+            ? null : new RoundArchiveWriter(Path.of(archiveFile));
+        if (archive != null) {
+            host.setArchive(archive);
+        }
+        System.out.print("Enter ratings file (blank for none): ");
+        String ratingsFile = reader.readLine().strip();
+        RatingService ratings = ratingsFile.isEmpty()
+            ? null : new RatingService(Path.of(ratingsFile), 60);
+        if (ratings != null) {
+            host.setRatings(ratings);
+        }
+        System.out.print("Enter standby host (blank for none): ");
+        String standbyHost = reader.readLine().strip();
+        ReplicationSender replication = null;
+        if (!standbyHost.isEmpty()) {
+            System.out.print("Enter standby replication port: ");
+            int standbyPort = Integer.parseInt(reader.readLine());
+            replication = new ReplicationSender(standbyHost, standbyPort);
+            host.setReplication(replication);
+        }
+        // the host runs until it is killed, so write out what the archive
+        // and the ratings still buffer on the way down
+        ReplicationSender finalReplication = replication;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (archive != null) {
+                    archive.close();
+                }
+                if (ratings != null) {
+                    ratings.close();
+                }
+                if (journal != null) {
+                    journal.close();
+                }
+            } catch (IOException e) {
+                System.out.println("Could not close files: " + e);
+            }
+            if (finalReplication != null) {
+                finalReplication.close();
+            }
+        }));
+        System.out.println("Hosting tables on port " + host.getPort() + ".");
+        host.start();
+    }
+}
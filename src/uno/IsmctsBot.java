@@ -0,0 +1,343 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A bot that chooses moves by information set Monte Carlo tree search. Each
+ * iteration deals the cards the bot cannot see at random, then searches a
+ * tree shared by all such deals, playing each iteration out with the
+ * {@code HeuristicBot} policy. Several independent trees are grown in
+ * parallel until the time budget runs out, and their root statistics are
+ * combined to pick the move.
+ */
+class IsmctsBot implements Bot {
+    /**
+     * Default time budget for a single decision.
+     */
+    static final long DEFAULT_TIME_BUDGET_MILLIS = 45;
+
+    /**
+     * Exploration constant for choosing children.
+     */
+    private static final double EXPLORATION = 0.7;
+    /**
+     * Number of moves after which a rollout is stopped and scored by hand
+     * sizes.
+     */
+    private static final int MAX_ROLLOUT_MOVES = 1000;
+    /**
+     * Policy for choosing moves during rollouts.
+     */
+    private static final Bot ROLLOUT_POLICY = new HeuristicBot();
+
+    /**
+     * Pool to run searches on.
+     */
+    private final ForkJoinPool pool;
+    /**
+     * Time budget for a single decision.
+     */
+    private final long timeBudgetNanos;
+
+    /**
+     * Create a new bot searching on the common pool with the default time
+     * budget.
+     */
+    IsmctsBot() {
+        this(ForkJoinPool.commonPool(), DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Create a new bot.
+     *
+     * @param pool             pool to run searches on, one per worker
+     * @param timeBudgetMillis time budget for a single decision, positive
+     */
+    IsmctsBot(@NotNull ForkJoinPool pool, long timeBudgetMillis) {
+        if (timeBudgetMillis <= 0) {
+            throw new IllegalArgumentException("Invalid time budget.");
+        }
+        this.pool = pool;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000;
+    }
+
+    @Override
+    public int chooseAction(@NotNull Game game, int player) {
+        int[] actions = new int[GameAction.MAX_ACTIONS];
+        int numActions = game.getLegalActions(player, actions);
+        if (numActions == 0) {
+            throw new IllegalStateException("No legal actions.");
+        }
+        for (int i = 0; i < numActions; i++) {
+            int type = GameAction.type(actions[i]);
+            if (type == GameAction.CHALLENGE_UNO
+                || type == GameAction.CALL_LATE_UNO) {
+                // these cost nothing, so there is no reason to wait
+                return actions[i];
+            }
+        }
+        if (numActions == 1) {
+            return actions[0];
+        }
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        List<Search> searches = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            // copy on this thread so that workers never touch the real game
+            searches.add(new Search(new Game(game, new Random()), player,
+                deadline));
+        }
+        int[] keys = new int[numActions];
+        int[] visits = new int[numActions];
+        for (int i = 0; i < numActions; i++) {
+            keys[i] = key(game, actions[i]);
+        }
+        for (Future<Node> future : pool.invokeAll(searches)) {
+            Node root;
+            try {
+                root = future.get();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            for (Node child : root.children) {
+                for (int i = 0; i < numActions; i++) {
+                    if (keys[i] == child.key) {
+                        visits[i] += child.visits;
+                        break;
+                    }
+                }
+            }
+        }
+        int best = 0;
+        for (int i = 1; i < numActions; i++) {
+            if (visits[i] > visits[best]) {
+                best = i;
+            }
+        }
+        return actions[best];
+    }
+
+    /**
+     * Get the key identifying an action across different deals. Playing a
+     * card is identified by the face of the card rather than by its index,
+     * which depends on the deal.
+     *
+     * @param game   the game
+     * @param action a legal action
+     * @return the key of the action
+     */
+    private static int key(Game game, int action) {
+        if (GameAction.type(action) != GameAction.PLAY_CARD) {
+            return action;
+        }
+        Card card = game.getPlayableCard(GameAction.arg(action));
+        return GameAction.of(GameAction.PLAY_CARD, card.face());
+    }
+
+    /**
+     * Apply an action during a search. If the action leaves a player open
+     * to an Uno challenge, the challenge is made at once, as a real
+     * opponent would.
+     *
+     * @param game   the game
+     * @param action a legal action
+     */
+    private static void step(Game game, int action) {
+        game.apply(action);
+        game.challengeMissedUno();
+    }
+
+    /**
+     * A node of the search tree, reached by a move from its parent.
+     */
+    private static final class Node {
+        /**
+         * Key of the move leading to this node.
+         */
+        final int key;
+        /**
+         * Index of the player who made the move leading to this node.
+         */
+        final int mover;
+        /**
+         * Parent node, or null for the root.
+         */
+        final Node parent;
+        /**
+         * Nodes reached by moves from this node.
+         */
+        final List<Node> children = new ArrayList<>();
+        /**
+         * Number of iterations passing through this node.
+         */
+        int visits;
+        /**
+         * Number of iterations in which this node's move was legal.
+         */
+        int available;
+        /**
+         * Number of those iterations won by {@code mover}.
+         */
+        double reward;
+
+        Node(int key, int mover, Node parent) {
+            this.key = key;
+            this.mover = mover;
+            this.parent = parent;
+        }
+
+        /**
+         * @return the upper confidence bound used to choose this node
+         */
+        double score() {
+            return reward / visits
+                + EXPLORATION * Math.sqrt(Math.log(available) / visits);
+        }
+    }
+
+    /**
+     * A single search growing one tree until the deadline.
+     */
+    private static final class Search implements Callable<Node> {
+        private final Game game;
+        private final int player;
+        private final long deadline;
+        private final int[] actions = new int[GameAction.MAX_ACTIONS];
+        private final int[] keys = new int[GameAction.MAX_ACTIONS];
+
+        /**
+         * @param game     a private copy of the game
+         * @param player   index of the player to search for
+         * @param deadline value of {@code System.nanoTime()} to stop at
+         */
+        Search(Game game, int player, long deadline) {
+            this.game = game;
+            this.player = player;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Node call() {
+            Random random = ThreadLocalRandom.current();
+            Node root = new Node(-1, -1, null);
+            do {
+                iterate(root, game.determinize(player, random), random);
+            } while (System.nanoTime() < deadline);
+            return root;
+        }
+
+        /**
+         * Run one iteration of selection, expansion, rollout and
+         * backpropagation.
+         *
+         * @param root   the root of the tree
+         * @param state  a deal consistent with what the player can see
+         * @param random random number generator
+         */
+        private void iterate(Node root, Game state, Random random) {
+            Node node = root;
+            while (state.getState() != GameState.ROUND_OVER) {
+                int mover = state.getActivePlayer();
+                int numActions = state.getLegalActions(mover, actions);
+                for (int i = 0; i < numActions; i++) {
+                    keys[i] = key(state, actions[i]);
+                }
+                int untried = -1;
+                int numUntried = 0;
+                for (int i = 0; i < numActions; i++) {
+                    if (findChild(node, keys[i]) == null
+                        && random.nextInt(++numUntried) == 0) {
+                        untried = i;
+                    }
+                }
+                if (untried != -1) {
+                    Node child = new Node(keys[untried], mover, node);
+                    node.children.add(child);
+                    step(state, actions[untried]);
+                    node = child;
+                    break;
+                }
+                Node best = null;
+                int bestAction = -1;
+                for (int i = 0; i < numActions; i++) {
+                    if (!isFirstKey(i)) {
+                        continue;
+                    }
+                    Node child = findChild(node, keys[i]);
+                    child.available++;
+                    if (best == null || child.score() > best.score()) {
+                        best = child;
+                        bestAction = actions[i];
+                    }
+                }
+                step(state, bestAction);
+                node = best;
+            }
+            int winner = rollout(state);
+            for (; node != null; node = node.parent) {
+                node.visits++;
+                if (node.mover == winner) {
+                    node.reward++;
+                }
+            }
+        }
+
+        /**
+         * @param index index into {@code keys}
+         * @return true if no earlier legal action has the same key
+         */
+        private boolean isFirstKey(int index) {
+            for (int i = 0; i < index; i++) {
+                if (keys[i] == keys[index]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Play moves chosen by the rollout policy until the round ends.
+         *
+         * @param state the game to play out
+         * @return the index of the winning player
+         */
+        private static int rollout(Game state) {
+            for (int i = 0; i < MAX_ROLLOUT_MOVES; i++) {
+                if (state.getState() == GameState.ROUND_OVER) {
+                    return state.getLastPlayed();
+                }
+                int mover = state.getActivePlayer();
+                step(state, ROLLOUT_POLICY.chooseAction(state, mover));
+            }
+            int winner = 0;
+            for (int i = 1; i < state.numPlayers; i++) {
+                if (state.getHandSize(i) < state.getHandSize(winner)) {
+                    winner = i;
+                }
+            }
+            return winner;
+        }
+
+        /**
+         * @param node a node
+         * @param key  key of a move
+         * @return the child of the node reached by the move, or null if
+         * there is none
+         */
+        private static Node findChild(Node node, int key) {
+            for (Node child : node.children) {
+                if (child.key == key) {
+                    return child;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,818 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the moves of live tables, shared by any number of
+ * tables. A game is deterministic given the seed of its random number
+ * generator, so the journal only records each table's seed and the actions
+ * applied to it, and a crashed process can rebuild every unfinished game by
+ * replaying them.
+ *
+ * <p>Appends are buffered in memory and written by a single flusher thread,
+ * which forces each batch to disk with one call. A table that needs its
+ * move to be durable before telling the players waits for the sequence
+ * number returned by the append; appends from other tables made in the
+ * meantime share the same force (group commit).
+ */
+class MoveJournal implements Closeable {
+    /*
+     * Record layout, all big-endian:
+     * - CREATE:   type, table id (long), number of players (byte), seed
+     *             (long), bot seats (short bit mask)
+     * - MOVE:     type, table id (long), player (byte, -1 for round
+     *             actions), action (int)
+     * - FINISH:   type, table id (long)
+     * - SNAPSHOT: type, table id (long), seed (long), bot seats (short bit
+     *             mask), length (short), snapshot of the game
+     * - SYNC:     type, sequence number of the last record before it
+     *             (long), time it was sent in epoch milliseconds (long)
+     * - ABANDON:  type, sequence number of the last record before it
+     *             (long), ending a stream the primary gave up on
+     * Every record ends with a CRC-32C (int) of the bytes before it.
+     * SNAPSHOT, SYNC and ABANDON records are only sent to a standby
+     * server, never written to a file. On recovery, the journal ends at
+     * the first record that is cut short, fails its checksum or has an
+     * unknown type, such as a tail of zeros left by a crash, and the rest
+     * is discarded.
+     */
+    private static final byte CREATE = 1;
+    private static final byte MOVE = 2;
+    private static final byte FINISH = 3;
+    private static final byte SNAPSHOT = 4;
+    static final byte SYNC = 5;
+    static final byte ABANDON = 6;
+    /**
+     * Size in bytes of a CREATE record.
+     */
+    static final int CREATE_SIZE = 24;
+    /**
+     * Size in bytes of a MOVE record.
+     */
+    static final int MOVE_SIZE = 18;
+    /**
+     * Size in bytes of a FINISH record.
+     */
+    static final int FINISH_SIZE = 13;
+    /**
+     * Size in bytes of a SNAPSHOT record without the snapshot.
+     */
+    static final int SNAPSHOT_HEADER_SIZE = 25;
+    /**
+     * Size in bytes of a SYNC record.
+     */
+    static final int SYNC_SIZE = 21;
+    /**
+     * Size in bytes of an ABANDON record.
+     */
+    static final int ABANDON_SIZE = 13;
+    /**
+     * Position of the snapshot's length in a SNAPSHOT record.
+     */
+    private static final int SNAPSHOT_LENGTH_OFFSET = 19;
+    /**
+     * Size in bytes of the checksum ending each record.
+     */
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final Map<Long, RecoveredTable> unfinishedTables;
+    private final Thread flusher;
+    private final Object lock = new Object();
+
+    /**
+     * Records appended but not yet handed to the flusher, guarded by
+     * {@code lock}.
+     */
+    private ByteBuffer pending;
+    /**
+     * Buffer being written by the flusher.
+     */
+    private ByteBuffer writing;
+    /**
+     * Sequence number of the last appended record, guarded by {@code lock}.
+     */
+    private long appendedSeq;
+    /**
+     * Sequence number of the last record forced to disk, guarded by
+     * {@code lock}.
+     */
+    private long durableSeq;
+    /**
+     * Largest table id recorded, guarded by {@code lock}.
+     */
+    private long maxTableId;
+    /**
+     * Error that stopped the flusher, guarded by {@code lock}.
+     */
+    private IOException error;
+    /**
+     * Whether the journal is closed, guarded by {@code lock}.
+     */
+    private boolean closed;
+
+    /**
+     * Open a journal, creating the file if it does not exist. The unfinished
+     * games recorded in an existing file are rebuilt, and the file is
+     * truncated at the first record that cannot be read back, such as one
+     * cut short by a crash.
+     *
+     * @param path path of the journal file
+     * @throws IOException if the file cannot be read or written
+     */
+    MoveJournal(@NotNull Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        unfinishedTables = new LinkedHashMap<>();
+        long validLength = replay();
+        channel.truncate(validLength);
+        channel.position(validLength);
+        pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        writing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        flusher = new Thread(this::flushLoop, "move-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * @return the games that were unfinished when the journal was opened,
+     * by table id, in the order they were created
+     */
+    Map<Long, RecoveredTable> getUnfinishedTables() {
+        return Collections.unmodifiableMap(unfinishedTables);
+    }
+
+    /**
+     * @return a table id not used by any table in the journal, assuming
+     * ids are only taken from this method
+     */
+    long newTableId() {
+        synchronized (lock) {
+            return ++maxTableId;
+        }
+    }
+
+    /**
+     * Record a new table.
+     *
+     * @param tableId    id of the table, unique within the journal
+     * @param numPlayers number of players
+     * @param seed       seed of the game's random number generator
+     * @param botSeats   bit mask of the seats taken by bots
+     * @return the sequence number of the record
+     * @throws IOException if the journal has failed
+     */
+    long create(long tableId, int numPlayers, long seed, int botSeats)
+        throws IOException {
+        synchronized (lock) {
+            maxTableId = Math.max(maxTableId, tableId);
+            putCreate(reserve(CREATE_SIZE), tableId, numPlayers, seed,
+                botSeats);
+            return appended();
+        }
+    }
+
+    /**
+     * Record an action applied to a table's game.
+     *
+     * @param tableId id of the table
+     * @param player  index of the player who made the move, or -1 for round
+     *                actions
+     * @param action  the action, encoded as described in {@code GameAction}
+     * @return the sequence number of the record
+     * @throws IOException if the journal has failed
+     */
+    long append(long tableId, int player, int action) throws IOException {
+        synchronized (lock) {
+            putMove(reserve(MOVE_SIZE), tableId, player, action);
+            return appended();
+        }
+    }
+
+    /**
+     * Record that a table's game is over, so it is not rebuilt.
+     *
+     * @param tableId id of the table
+     * @return the sequence number of the record
+     * @throws IOException if the journal has failed
+     */
+    long finish(long tableId) throws IOException {
+        synchronized (lock) {
+            putFinish(reserve(FINISH_SIZE), tableId);
+            return appended();
+        }
+    }
+
+    /**
+     * Write a CREATE record.
+     *
+     * @param buffer     the buffer to write to, with at least
+     *                   {@code CREATE_SIZE} bytes remaining
+     * @param tableId    id of the table
+     * @param numPlayers number of players
+     * @param seed       seed of the game's random number generator
+     * @param botSeats   bit mask of the seats taken by bots
+     */
+    static void putCreate(@NotNull ByteBuffer buffer, long tableId,
+                          int numPlayers, long seed, int botSeats) {
+        int start = buffer.position();
+        buffer.put(CREATE).putLong(tableId).put((byte) numPlayers)
+            .putLong(seed).putShort((short) botSeats);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * Write a MOVE record.
+     *
+     * @param buffer  the buffer to write to, with at least
+     *                {@code MOVE_SIZE} bytes remaining
+     * @param tableId id of the table
+     * @param player  index of the player who made the move, or -1 for round
+     *                actions
+     * @param action  the action, encoded as described in {@code GameAction}
+     */
+    static void putMove(@NotNull ByteBuffer buffer, long tableId, int player,
+                        int action) {
+        int start = buffer.position();
+        buffer.put(MOVE).putLong(tableId).put((byte) player).putInt(action);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * Write a FINISH record.
+     *
+     * @param buffer  the buffer to write to, with at least
+     *                {@code FINISH_SIZE} bytes remaining
+     * @param tableId id of the table
+     */
+    static void putFinish(@NotNull ByteBuffer buffer, long tableId) {
+        int start = buffer.position();
+        buffer.put(FINISH).putLong(tableId);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * Write a SNAPSHOT record.
+     *
+     * @param buffer   the buffer to write to, with at least
+     *                 {@code SNAPSHOT_HEADER_SIZE} bytes remaining plus the
+     *                 size of the snapshot
+     * @param tableId  id of the table
+     * @param seed     seed of the game's random number generator
+     * @param botSeats bit mask of the seats taken by bots
+     * @param snapshot the snapshot, from its position to its limit
+     */
+    static void putSnapshot(@NotNull ByteBuffer buffer, long tableId,
+                            long seed, int botSeats,
+                            @NotNull ByteBuffer snapshot) {
+        int start = buffer.position();
+        buffer.put(SNAPSHOT).putLong(tableId).putLong(seed)
+            .putShort((short) botSeats).putShort((short) snapshot.remaining())
+            .put(snapshot);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * Write a SYNC record.
+     *
+     * @param buffer   the buffer to write to, with at least
+     *                 {@code SYNC_SIZE} bytes remaining
+     * @param seq      sequence number of the last record before it
+     * @param sentTime time the record is sent, in epoch milliseconds
+     */
+    static void putSync(@NotNull ByteBuffer buffer, long seq, long sentTime) {
+        int start = buffer.position();
+        buffer.put(SYNC).putLong(seq).putLong(sentTime);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * Write an ABANDON record.
+     *
+     * @param buffer the buffer to write to, with at least
+     *               {@code ABANDON_SIZE} bytes remaining
+     * @param seq    sequence number of the last record before it
+     */
+    static void putAbandon(@NotNull ByteBuffer buffer, long seq) {
+        int start = buffer.position();
+        buffer.put(ABANDON).putLong(seq);
+        putChecksum(buffer, start);
+    }
+
+    /**
+     * End a record with the checksum of its bytes.
+     *
+     * @param buffer the buffer the record was written to, positioned at its
+     *               end
+     * @param start  position of the start of the record
+     */
+    private static void putChecksum(ByteBuffer buffer, int start) {
+        buffer.putInt(checksum(buffer, start, buffer.position() - start));
+    }
+
+    /**
+     * @param buffer the buffer to read from
+     * @param start  position of the first byte
+     * @param length number of bytes
+     * @return the CRC-32C of the bytes
+     */
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(start, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Wait until a record is forced to disk. When called from a
+     * {@code ForkJoinPool} worker, the pool may add a thread while this one
+     * waits, so that waiting tables do not starve the others.
+     *
+     * @param seq sequence number returned when the record was appended
+     * @throws IOException          if the journal failed before the record
+     *                              was forced
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitDurable(long seq) throws IOException, InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                synchronized (lock) {
+                    while (durableSeq < seq && error == null) {
+                        lock.wait();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                synchronized (lock) {
+                    return durableSeq >= seq || error != null;
+                }
+            }
+        });
+        synchronized (lock) {
+            if (durableSeq < seq) {
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Force all appended records to disk and close the journal.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        long seq;
+        synchronized (lock) {
+            seq = appendedSeq;
+        }
+        try {
+            awaitDurable(seq);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                lock.notifyAll();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Make room for a record in the pending buffer, requires holding
+     * {@code lock}.
+     *
+     * @param size size of the record in bytes
+     * @return the pending buffer
+     * @throws IOException if the journal has failed or is closed
+     */
+    private ByteBuffer reserve(int size) throws IOException {
+        if (error != null) {
+            throw error;
+        }
+        if (closed) {
+            throw new IOException("Journal is closed.");
+        }
+        if (pending.remaining() < size) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        return pending;
+    }
+
+    /**
+     * Finish appending a record, requires holding {@code lock}.
+     *
+     * @return the sequence number of the record
+     */
+    private long appended() {
+        lock.notifyAll();
+        return ++appendedSeq;
+    }
+
+    /**
+     * Write and force batches of pending records until the journal is
+     * closed.
+     */
+    private void flushLoop() {
+        while (true) {
+            long batchSeq;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchSeq = appendedSeq;
+            }
+            try {
+                writing.flip();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                writing.clear();
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (lock) {
+                    error = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                durableSeq = batchSeq;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Rebuild the unfinished games recorded in the journal file.
+     *
+     * @return the length of the file up to the end of the last whole record
+     * @throws IOException if the file cannot be read
+     */
+    private long replay() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        MappedByteBuffer buffer =
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        Replayer replayer = new Replayer();
+        int end = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                replayer.apply(buffer);
+                end = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // the last record was cut short
+        } catch (IOException e) {
+            // a record that was never completely written, such as zeros
+            // left by a crash that extended the file
+            System.out.println("Journal is corrupt at byte " + end
+                + ", discarding the last " + (size - end) + " bytes.");
+        }
+        if (replayer.getNumFailedTables() > 0) {
+            System.out.println(replayer.getNumFailedTables()
+                + " tables could not be rebuilt from the journal.");
+        }
+        unfinishedTables.putAll(replayer.getUnfinishedTables());
+        maxTableId = replayer.getMaxTableId();
+        return end;
+    }
+
+    /**
+     * Rebuilds games from records, whether read back from a journal file or
+     * streamed from a primary server to a standby. Not thread-safe.
+     */
+    static class Replayer {
+        private final Map<Long, MirrorTable> tables = new LinkedHashMap<>();
+        private long maxTableId;
+        private long numRecords;
+        private long lastSyncSeq;
+        private long lastSyncTime;
+        private long numDivergences;
+        private long numFailedTables;
+        private boolean abandoned;
+
+        /**
+         * Read one record and apply it. If the record is cut short or
+         * corrupt, nothing is applied and the buffer's position is left at
+         * its start.
+         *
+         * @param buffer the buffer to read from
+         * @return the type of the record
+         * @throws BufferUnderflowException if the buffer ends before the
+         *                                  record does
+         * @throws IOException              if the record has an unknown
+         *                                  type, fails its checksum or
+         *                                  creates an invalid table
+         */
+        byte apply(@NotNull ByteBuffer buffer) throws IOException {
+            int start = buffer.position();
+            try {
+                byte type = buffer.get();
+                int size = switch (type) {
+                    case CREATE -> CREATE_SIZE;
+                    case MOVE -> MOVE_SIZE;
+                    case FINISH -> FINISH_SIZE;
+                    case SNAPSHOT -> {
+                        if (buffer.limit() - start < SNAPSHOT_HEADER_SIZE) {
+                            throw new BufferUnderflowException();
+                        }
+                        yield SNAPSHOT_HEADER_SIZE + (buffer.getShort(
+                            start + SNAPSHOT_LENGTH_OFFSET) & 0xFFFF);
+                    }
+                    case SYNC -> SYNC_SIZE;
+                    case ABANDON -> ABANDON_SIZE;
+                    default -> throw new IOException("Corrupt journal record.");
+                };
+                if (buffer.limit() - start < size) {
+                    throw new BufferUnderflowException();
+                }
+                int end = start + size - CHECKSUM_SIZE;
+                if (checksum(buffer, start, end - start)
+                    != buffer.getInt(end)) {
+                    throw new IOException("Corrupt journal record.");
+                }
+                long tableId = buffer.getLong();
+                switch (type) {
+                case CREATE -> {
+                    int numPlayers = buffer.get();
+                    if (numPlayers < Game.MIN_PLAYERS
+                        || numPlayers > Game.MAX_PLAYERS) {
+                        throw new IOException("Corrupt journal record.");
+                    }
+                    long seed = buffer.getLong();
+                    int botSeats = buffer.getShort() & 0xFFFF;
+                    maxTableId = Math.max(maxTableId, tableId);
+                    tables.put(tableId, new MirrorTable(tableId,
+                        new Game(numPlayers, new SnapshotRandom(seed)), seed,
+                        botSeats));
+                }
+                case MOVE -> {
+                    int player = buffer.get();
+                    int action = buffer.getInt();
+                    MirrorTable table = tables.get(tableId);
+                    if (table != null
+                        && tryApply(table.game, player, action)) {
+                        table.actions.add(action);
+                    } else if (table != null) {
+                        // the game cannot be rebuilt past this move, so it
+                        // is dropped rather than resumed in a wrong state
+                        tables.remove(tableId);
+                        numFailedTables++;
+                    }
+                }
+                case FINISH -> tables.remove(tableId);
+                case SNAPSHOT -> applySnapshot(buffer, tableId);
+                case SYNC -> {
+                    lastSyncSeq = tableId;
+                    lastSyncTime = buffer.getLong();
+                }
+                case ABANDON -> {
+                    // the records the primary gave up on are missing, so
+                    // no mirror is known to be up to date
+                    lastSyncSeq = tableId;
+                    tables.clear();
+                    abandoned = true;
+                }
+                }
+                if (type != SYNC) {
+                    numRecords++;
+                }
+                buffer.position(start + size);
+                return type;
+            } catch (BufferUnderflowException | IOException e) {
+                buffer.position(start);
+                throw e;
+            }
+        }
+
+        /**
+         * Apply a recorded action to a game if it is legal, without
+         * throwing.
+         *
+         * @param game   the game
+         * @param player index of the player who made the move, or -1 for
+         *               round actions
+         * @param action the action, encoded as described in
+         *               {@code GameAction}
+         * @return whether the action was applied
+         */
+        private static boolean tryApply(Game game, int player, int action) {
+            if (player >= 0) {
+                return game.tryApply(player, action) == MoveResult.OK;
+            }
+            boolean isLegal = switch (GameAction.type(action)) {
+                case GameAction.START_ROUND ->
+                    game.getState() == GameState.ROUND_START;
+                case GameAction.RESET_ROUND, GameAction.RESET_GAME ->
+                    game.getState() == GameState.ROUND_OVER;
+                default -> false;
+            };
+            if (isLegal) {
+                game.apply(action);
+            }
+            return isLegal;
+        }
+
+        /**
+         * Check a table against a snapshot, or start mirroring it if it is
+         * not known yet. A table that differs from its snapshot is replaced
+         * by it.
+         */
+        private void applySnapshot(ByteBuffer buffer, long tableId)
+            throws IOException {
+            long seed = buffer.getLong();
+            int botSeats = buffer.getShort() & 0xFFFF;
+            int length = buffer.getShort() & 0xFFFF;
+            ByteBuffer snapshot = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            MirrorTable table = tables.get(tableId);
+            if (table != null) {
+                ByteBuffer mirrored =
+                    ByteBuffer.allocate(Game.MAX_SNAPSHOT_SIZE);
+                table.game.writeSnapshot(mirrored);
+                mirrored.flip();
+                if (mirrored.equals(snapshot)) {
+                    return;
+                }
+                numDivergences++;
+            }
+            Game game;
+            try {
+                game = new Game(snapshot);
+            } catch (IllegalArgumentException | BufferUnderflowException e) {
+                throw new IOException("Corrupt snapshot record.", e);
+            }
+            maxTableId = Math.max(maxTableId, tableId);
+            // the actions before the snapshot are not known
+            tables.put(tableId, new MirrorTable(tableId, game, seed,
+                botSeats));
+        }
+
+        /**
+         * @return the games not finished yet, by table id, in the order
+         * they were created, each with its own copy of the game
+         */
+        Map<Long, RecoveredTable> getUnfinishedTables() {
+            Map<Long, RecoveredTable> unfinished = new LinkedHashMap<>();
+            ByteBuffer snapshot = ByteBuffer.allocate(Game.MAX_SNAPSHOT_SIZE);
+            for (MirrorTable table : tables.values()) {
+                // the snapshot holds the random number generator's state,
+                // so the copy deals the same cards as the mirror would
+                snapshot.clear();
+                table.game.writeSnapshot(snapshot);
+                snapshot.flip();
+                unfinished.put(table.id, new RecoveredTable(table.id,
+                    new Game(snapshot), table.seed, table.botSeats,
+                    table.actions.toArray()));
+            }
+            return unfinished;
+        }
+
+        /**
+         * @return the number of games not finished yet
+         */
+        int getNumTables() {
+            return tables.size();
+        }
+
+        /**
+         * @return the largest table id seen
+         */
+        long getMaxTableId() {
+            return maxTableId;
+        }
+
+        /**
+         * @return the number of records applied, not counting SYNC records
+         */
+        long getNumRecords() {
+            return numRecords;
+        }
+
+        /**
+         * @return the sequence number carried by the last SYNC record, or 0
+         * if there was none
+         */
+        long getLastSyncSeq() {
+            return lastSyncSeq;
+        }
+
+        /**
+         * @return the time the last SYNC record was sent, in epoch
+         * milliseconds, or 0 if there was none
+         */
+        long getLastSyncTime() {
+            return lastSyncTime;
+        }
+
+        /**
+         * @return the number of tables dropped because a recorded move
+         * could not be applied to them
+         */
+        long getNumFailedTables() {
+            return numFailedTables;
+        }
+
+        /**
+         * @return the number of snapshots that did not match the mirrored
+         * game
+         */
+        long getNumDivergences() {
+            return numDivergences;
+        }
+
+        /**
+         * @return whether an ABANDON record was applied, after which there
+         * are no tables left to resume
+         */
+        boolean isAbandoned() {
+            return abandoned;
+        }
+    }
+
+    /**
+     * A game being rebuilt by a {@code Replayer}.
+     */
+    private static class MirrorTable {
+        private final long id;
+        private final Game game;
+        private final long seed;
+        private final int botSeats;
+        private final ActionList actions = new ActionList();
+
+        MirrorTable(long id, Game game, long seed, int botSeats) {
+            this.id = id;
+            this.game = game;
+            this.seed = seed;
+            this.botSeats = botSeats;
+        }
+    }
+
+    /**
+     * An unfinished game rebuilt from the journal.
+     *
+     * @param id       id of the table
+     * @param game     the game, in the state after its last recorded move
+     * @param seed     seed of the game's random number generator
+     * @param botSeats bit mask of the seats taken by bots
+     * @param actions  the actions applied to the game so far
+     */
+    record RecoveredTable(long id, Game game, long seed, int botSeats,
+                          int[] actions) {
+    }
+
+    /**
+     * A growable list of actions.
+     */
+    private static class ActionList {
+        private int[] actions = new int[64];
+        private int size;
+
+        void add(int action) {
+            if (size == actions.length) {
+                actions = Arrays.copyOf(actions, 2 * size);
+            }
+            actions[size++] = action;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(actions, size);
+        }
+    }
+}
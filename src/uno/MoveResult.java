@@ -0,0 +1,28 @@
+package uno;
+
+/**
+ * Enum for the result of validating a move.
+ */
+enum MoveResult {
+    OK("OK"),
+    WRONG_STATE("Move is not allowed in the current state."),
+    WRONG_PLAYER("Move is not allowed for this player."),
+    NOT_ALLOWED("Move is not allowed after the last move."),
+    INVALID_ARGUMENT("Invalid move argument.");
+
+    private final String string;
+
+    /**
+     * Create a new move result.
+     *
+     * @param string String to print for this move result
+     */
+    MoveResult(String string) {
+        this.string = string;
+    }
+
+    @Override
+    public String toString() {
+        return string;
+    }
+}
@@ -0,0 +1,154 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The rules deciding whether a player may make a move, shared by
+ * {@code Game} on the server and {@code GameData} on the client so that a
+ * client rejects exactly the moves the server would.
+ */
+final class MoveRules {
+    private MoveRules() {
+    }
+
+    /**
+     * Check whether a player may apply an action, without throwing.
+     *
+     * @param player           the index of the player making the move
+     * @param action           the action, encoded as described in
+     *                         {@code GameAction}
+     * @param numPlayers       number of players
+     * @param state            state of the game
+     * @param activePlayer     index of the active player
+     * @param lastPlayed       index of the player who moved last
+     * @param numPlayableCards number of cards the active player can play
+     * @param canCallUno       whether the active player can call Uno
+     * @param canChallengeUno  whether the last player can be challenged for
+     *                         not calling Uno
+     * @param calledUno        whether the active player called Uno this
+     *                         turn
+     * @return {@code MoveResult.OK} if the action is legal, and the reason
+     * it is not otherwise
+     */
+    static MoveResult validate(int player, int action, int numPlayers,
+                               @NotNull GameState state, int activePlayer,
+                               int lastPlayed, int numPlayableCards,
+                               boolean canCallUno, boolean canChallengeUno,
+                               boolean calledUno) {
+        if (player < 0 || player >= numPlayers) {
+            return MoveResult.WRONG_PLAYER;
+        }
+        int arg = GameAction.arg(action);
+        boolean isActive = (player == activePlayer);
+        switch (GameAction.type(action)) {
+        case GameAction.PLAY_CARD -> {
+            if (state != GameState.PLAY_CARD) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (arg >= numPlayableCards) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+        }
+        case GameAction.DRAW_CARD -> {
+            if (arg != 0) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+            if (state != GameState.PLAY_CARD) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (calledUno) {
+                return MoveResult.NOT_ALLOWED;
+            }
+        }
+        case GameAction.PLAY_DRAWN_CARD -> {
+            if (state != GameState.PLAY_DRAWN_CARD) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (arg > 1) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+            if (calledUno && arg == 0) {
+                return MoveResult.NOT_ALLOWED;
+            }
+        }
+        case GameAction.CALL_UNO -> {
+            if (arg != 0) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+            if (!(state == GameState.PLAY_CARD
+                || state == GameState.PLAY_DRAWN_CARD)) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (!canCallUno) {
+                return MoveResult.NOT_ALLOWED;
+            }
+        }
+        case GameAction.CALL_LATE_UNO -> {
+            if (arg != 0) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+            if (state != GameState.PLAY_CARD) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!canChallengeUno) {
+                return MoveResult.NOT_ALLOWED;
+            }
+            if (player != lastPlayed) {
+                return MoveResult.WRONG_PLAYER;
+            }
+        }
+        case GameAction.CHALLENGE_UNO -> {
+            if (state != GameState.PLAY_CARD) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!canChallengeUno) {
+                return MoveResult.NOT_ALLOWED;
+            }
+            if (player == lastPlayed) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (arg != player) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+        }
+        case GameAction.CHANGE_COLOR -> {
+            if (state != GameState.CHANGE_COLOR) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (arg >= CardColor.NONE.ordinal()) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+        }
+        case GameAction.CHALLENGE_DRAW_FOUR -> {
+            if (state != GameState.CHALLENGE_DRAW_FOUR) {
+                return MoveResult.WRONG_STATE;
+            }
+            if (!isActive) {
+                return MoveResult.WRONG_PLAYER;
+            }
+            if (arg > 1) {
+                return MoveResult.INVALID_ARGUMENT;
+            }
+        }
+        default -> {
+            return MoveResult.INVALID_ARGUMENT;
+        }
+        }
+        return MoveResult.OK;
+    }
+}
@@ -0,0 +1,279 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Elo ratings of players across games, shared by every table. A finished
+ * game is scored as a round robin: each pair of players is an Elo match won
+ * by the player with the higher final score, with the K-factor divided
+ * among a player's opponents.
+ *
+ * <p>Players are guarded by striped locks, so games between different
+ * players are recorded in parallel; the locks of a game's players are
+ * taken in stripe order to avoid deadlock. A sorted index serves top-K
+ * queries without locking, and the ratings are saved to a file
+ * periodically and when the service is closed.
+ */
+class RatingService implements Closeable {
+    /**
+     * Rating of a new player.
+     */
+    static final double INITIAL_RATING = 1500;
+    /**
+     * Maximum rating change from a single game.
+     */
+    static final double K_FACTOR = 32;
+
+    private static final int NUM_STRIPES = 64;
+    private static final int SNAPSHOT_MAGIC = 0x554E4F45;
+    private static final Comparator<Rating> BY_RATING =
+        Comparator.comparingDouble(Rating::rating).reversed()
+            .thenComparing(Rating::name).thenComparingInt(Rating::games);
+
+    private final ConcurrentHashMap<String, Player> players;
+    private final ConcurrentSkipListSet<Rating> index;
+    private final ReentrantLock[] stripes;
+    private final Path snapshotFile;
+    private final ScheduledExecutorService snapshotter;
+
+    /**
+     * Create a rating service, loading the ratings saved in a file if it
+     * exists.
+     *
+     * @param snapshotFile          file to save the ratings to
+     * @param snapshotPeriodSeconds seconds between saves, positive
+     * @throws IOException if the file exists but cannot be read
+     */
+    RatingService(@NotNull Path snapshotFile, long snapshotPeriodSeconds)
+        throws IOException {
+        players = new ConcurrentHashMap<>();
+        index = new ConcurrentSkipListSet<>(BY_RATING);
+        stripes = new ReentrantLock[NUM_STRIPES];
+        for (int i = 0; i < NUM_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.snapshotFile = snapshotFile;
+        load();
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rating-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                save();
+            } catch (IOException e) {
+                // keep the schedule; the next save may succeed
+                System.out.println("Failed to save ratings: " + e);
+            }
+        }, snapshotPeriodSeconds, snapshotPeriodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Update the ratings of the players of a finished game.
+     *
+     * @param names  the names of the players, distinct
+     * @param scores the final scores of the players, in the same order
+     */
+    void recordGame(@NotNull String[] names, @NotNull int[] scores) {
+        int n = names.length;
+        if (n < 2 || scores.length != n
+            || new HashSet<>(Arrays.asList(names)).size() != n) {
+            throw new IllegalArgumentException("Invalid game result.");
+        }
+        Player[] gamePlayers = new Player[n];
+        for (int i = 0; i < n; i++) {
+            gamePlayers[i] = players.computeIfAbsent(names[i], Player::new);
+        }
+        int[] lockOrder = Arrays.stream(names).mapToInt(this::stripe)
+            .distinct().sorted().toArray();
+        for (int stripe : lockOrder) {
+            stripes[stripe].lock();
+        }
+        try {
+            double[] deltas = new double[n];
+            double k = K_FACTOR / (n - 1);
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double diff = gamePlayers[j].rating - gamePlayers[i].rating;
+                    double expected = 1 / (1 + Math.pow(10, diff / 400));
+                    double actual =
+                        0.5 + Integer.compare(scores[i], scores[j]) / 2.0;
+                    deltas[i] += k * (actual - expected);
+                    deltas[j] -= k * (actual - expected);
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                Player player = gamePlayers[i];
+                Rating old = player.snapshot();
+                player.rating += deltas[i];
+                player.games++;
+                // add before removing, so the player is never missing
+                index.add(player.snapshot());
+                index.remove(old);
+            }
+        } finally {
+            for (int stripe : lockOrder) {
+                stripes[stripe].unlock();
+            }
+        }
+    }
+
+    /**
+     * @param name name of a player
+     * @return the rating of the player, or null if the player is unknown
+     */
+    Rating getRating(@NotNull String name) {
+        Player player = players.get(name);
+        if (player == null) {
+            return null;
+        }
+        ReentrantLock lock = stripes[stripe(name)];
+        lock.lock();
+        try {
+            return player.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the highest rated players. Ratings updated while this runs may be
+     * seen either before or after the update.
+     *
+     * @param k number of players
+     * @return up to {@code k} players, highest rating first
+     */
+    List<Rating> getTopRatings(int k) {
+        List<Rating> top = new ArrayList<>(k);
+        Set<String> seen = new HashSet<>();
+        for (Rating rating : index) {
+            if (top.size() == k) {
+                break;
+            }
+            // a player being updated can briefly appear twice
+            if (seen.add(rating.name())) {
+                top.add(rating);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Save the ratings to the snapshot file. The file is replaced
+     * atomically, so a crash leaves either the old or the new ratings.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        List<Rating> ratings = new ArrayList<>();
+        for (String name : players.keySet()) {
+            ratings.add(getRating(name));
+        }
+        Path temp = snapshotFile.resolveSibling(
+            snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(ratings.size());
+            for (Rating rating : ratings) {
+                out.writeUTF(rating.name());
+                out.writeDouble(rating.rating());
+                out.writeInt(rating.games());
+            }
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stop saving periodically and save the ratings one last time.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdownNow();
+        save();
+    }
+
+    /**
+     * Load the ratings from the snapshot file, if it exists.
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a rating snapshot.");
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                Player player = new Player(in.readUTF());
+                player.rating = in.readDouble();
+                player.games = in.readInt();
+                players.put(player.name, player);
+                index.add(player.snapshot());
+            }
+        } catch (NoSuchFileException e) {
+            // no ratings saved yet
+        }
+    }
+
+    /**
+     * @param name name of a player
+     * @return the index of the lock stripe guarding the player
+     */
+    private int stripe(String name) {
+        return (name.hashCode() & Integer.MAX_VALUE) % NUM_STRIPES;
+    }
+
+    /**
+     * Rating of a player at some point in time.
+     *
+     * @param name   name of the player
+     * @param rating Elo rating
+     * @param games  number of games played
+     */
+    record Rating(@NotNull String name, double rating, int games) {
+    }
+
+    /**
+     * Mutable rating of a player, guarded by the player's lock stripe.
+     */
+    private static class Player {
+        private final String name;
+        private double rating = INITIAL_RATING;
+        private int games;
+
+        Player(String name) {
+            this.name = name;
+        }
+
+        Rating snapshot() {
+            return new Rating(name, rating, games);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A recorded game that can be read from any move without replaying it from
+ * the start. The file holds the actions of the game and a snapshot of the
+ * game every {@code interval} moves, with an index of where each snapshot
+ * starts, and is read through a memory-mapped buffer. Seeking to a move
+ * loads the nearest snapshot at or before it and applies at most
+ * {@code interval - 1} actions.
+ */
+class ReplayFile implements Closeable {
+    /*
+     * File layout, all big-endian:
+     * - header: magic (int), version (short), number of players (byte),
+     *   unused (byte), seed (long), interval (int), number of moves (int),
+     *   number of snapshots (int), index offset (long)
+     * - actions: one int per move, encoded as described in GameAction
+     * - snapshots: the game after 0, interval, 2 * interval, ... moves, as
+     *   written by Game.writeSnapshot
+     * - index: offset of each snapshot (long)
+     */
+    private static final int MAGIC = 0x554E4F52;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 36;
+    /**
+     * Number of moves between snapshots when none is given.
+     */
+    static final int DEFAULT_INTERVAL = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int numPlayers;
+    private final long seed;
+    private final int interval;
+    private final int numMoves;
+    private final int numSnapshots;
+    private final long indexOffset;
+
+    /**
+     * Open a replay file.
+     *
+     * @param path path of the file
+     * @throws IOException if the file cannot be read or is not a replay file
+     */
+    ReplayFile(@NotNull Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("Not a replay file.");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+                throw new IOException("Not a replay file.");
+            }
+            numPlayers = buffer.get(6);
+            seed = buffer.getLong(8);
+            interval = buffer.getInt(16);
+            numMoves = buffer.getInt(20);
+            numSnapshots = buffer.getInt(24);
+            indexOffset = buffer.getLong(28);
+            if (interval <= 0 || numMoves < 0
+                || numSnapshots != numMoves / interval + 1
+                || indexOffset + 8L * numSnapshots != size) {
+                throw new IOException("Corrupt replay file.");
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Record a game in a replay file, replacing any existing file. The game
+     * is played again from its seed to take the snapshots.
+     *
+     * @param path       path of the file
+     * @param numPlayers number of players
+     * @param seed       seed of the game's random number generator
+     * @param actions    the actions applied to the game, starting from a new
+     *                   game, encoded as described in {@code GameAction}
+     * @param numActions number of actions in {@code actions}
+     * @param interval   number of moves between snapshots, positive
+     * @throws IOException if the file cannot be written
+     */
+    static void write(@NotNull Path path, int numPlayers, long seed,
+                      @NotNull int[] actions, int numActions, int interval)
+        throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid snapshot interval.");
+        }
+        Game game = new Game(numPlayers, new SnapshotRandom(seed));
+        int numSnapshots = numActions / interval + 1;
+        ByteBuffer snapshots =
+            ByteBuffer.allocate(numSnapshots * Game.MAX_SNAPSHOT_SIZE);
+        long[] offsets = new long[numSnapshots];
+        long snapshotStart = HEADER_SIZE + 4L * numActions;
+        for (int i = 0; i <= numActions; i++) {
+            if (i % interval == 0) {
+                offsets[i / interval] = snapshotStart + snapshots.position();
+                game.writeSnapshot(snapshots);
+            }
+            if (i < numActions) {
+                game.apply(actions[i]);
+            }
+        }
+        long indexOffset = snapshotStart + snapshots.position();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putShort(VERSION).put((byte) numPlayers)
+            .put((byte) 0).putLong(seed).putInt(interval).putInt(numActions)
+            .putInt(numSnapshots).putLong(indexOffset).flip();
+        ByteBuffer moves = ByteBuffer.allocate(4 * numActions);
+        moves.asIntBuffer().put(actions, 0, numActions);
+        ByteBuffer index = ByteBuffer.allocate(8 * numSnapshots);
+        index.asLongBuffer().put(offsets);
+        snapshots.flip();
+        try (FileChannel out = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer[] parts = {header, moves, snapshots, index};
+            while (index.hasRemaining()) {
+                out.write(parts);
+            }
+        }
+    }
+
+    /**
+     * @return the number of players
+     */
+    int getNumPlayers() {
+        return numPlayers;
+    }
+
+    /**
+     * @return the seed of the game's random number generator
+     */
+    long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the number of moves in the game
+     */
+    int getNumMoves() {
+        return numMoves;
+    }
+
+    /**
+     * @param move index of the move, between 0 inclusive and the number of
+     *             moves exclusive
+     * @return the action of the move, encoded as described in
+     * {@code GameAction}
+     */
+    int getAction(int move) {
+        if (move < 0 || move >= numMoves) {
+            throw new IndexOutOfBoundsException("Invalid move.");
+        }
+        return buffer.getInt(HEADER_SIZE + 4 * move);
+    }
+
+    /**
+     * Rebuild the game as it was after a number of moves. This method may
+     * be called from several threads at once.
+     *
+     * @param move number of moves made, between 0 and the number of moves
+     *             inclusive
+     * @return the game after {@code move} moves
+     */
+    Game seek(int move) {
+        if (move < 0 || move > numMoves) {
+            throw new IndexOutOfBoundsException("Invalid move.");
+        }
+        int snapshot = move / interval;
+        long start = buffer.getLong((int) (indexOffset + 8L * snapshot));
+        long end = snapshot + 1 < numSnapshots
+            ? buffer.getLong((int) (indexOffset + 8L * (snapshot + 1)))
+            : indexOffset;
+        Game game = new Game(buffer.slice((int) start, (int) (end - start)));
+        for (int i = snapshot * interval; i < move; i++) {
+            game.apply(getAction(i));
+        }
+        return game;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,337 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Streams the moves of live tables to a standby server, which mirrors the
+ * games and takes over the tables if this server stops. Uses the record
+ * layout of {@code MoveJournal}, with periodic snapshots so the standby
+ * can check its mirrors, shared by any number of tables.
+ *
+ * <p>Records are buffered in memory and sent by a single sender thread,
+ * which ends each batch with a SYNC record carrying the time it was sent,
+ * so the standby can measure how far behind it is. Tables never wait for
+ * the standby: replication is asynchronous, and if the connection fails,
+ * or the standby falls so far behind that the records waiting for it
+ * would exceed {@code MAX_PENDING_SIZE}, the error is printed and the
+ * tables carry on without a standby. The stream then ends with an ABANDON
+ * record, so the standby drops its mirrors instead of resuming games that
+ * carry on without it.
+ */
+class ReplicationSender implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    /**
+     * Largest size in bytes of the records waiting to be handed to the
+     * sender, about three million moves.
+     */
+    private static final int MAX_PENDING_SIZE = 1 << 26;
+
+    private final SocketChannel channel;
+    private final Thread sender;
+    private final Object lock = new Object();
+
+    /**
+     * Records appended but not yet handed to the sender, guarded by
+     * {@code lock}.
+     */
+    private ByteBuffer pending;
+    /**
+     * Buffer being sent by the sender.
+     */
+    private ByteBuffer sending;
+    /**
+     * Sequence number of the last appended record, guarded by {@code lock}.
+     */
+    private long appendedSeq;
+    /**
+     * Sequence number of the last record sent, guarded by {@code lock}.
+     */
+    private long sentSeq;
+    /**
+     * Largest table id used, guarded by {@code lock}.
+     */
+    private long maxTableId;
+    /**
+     * Whether the connection failed or was closed, guarded by
+     * {@code lock}.
+     */
+    private boolean closed;
+    /**
+     * Whether replication was given up on while the tables carry on,
+     * guarded by {@code lock}.
+     */
+    private boolean abandoned;
+
+    /**
+     * Connect to a standby server.
+     *
+     * @param host the standby's host
+     * @param port the port the standby listens on for replication
+     * @throws IOException if the standby cannot be reached
+     */
+    ReplicationSender(@NotNull String host, int port) throws IOException {
+        channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.socket().setTcpNoDelay(true);
+        pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        sending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        sender = new Thread(this::sendLoop, "replication-sender");
+        sender.setDaemon(true);
+        sender.start();
+    }
+
+    /**
+     * @return a table id not used by any table replicated so far, assuming
+     * ids are only taken from this method or a journal's
+     */
+    long newTableId() {
+        synchronized (lock) {
+            return ++maxTableId;
+        }
+    }
+
+    /**
+     * @return the number of records appended but not yet sent
+     */
+    long getBacklog() {
+        synchronized (lock) {
+            return appendedSeq - sentSeq;
+        }
+    }
+
+    /**
+     * Replicate a new table.
+     *
+     * @param tableId    id of the table, unique among replicated tables
+     * @param numPlayers number of players
+     * @param seed       seed of the game's random number generator
+     * @param botSeats   bit mask of the seats taken by bots
+     */
+    void create(long tableId, int numPlayers, long seed, int botSeats) {
+        synchronized (lock) {
+            maxTableId = Math.max(maxTableId, tableId);
+            ByteBuffer buffer = reserve(MoveJournal.CREATE_SIZE);
+            if (buffer != null) {
+                MoveJournal.putCreate(buffer, tableId, numPlayers, seed,
+                    botSeats);
+                appended();
+            }
+        }
+    }
+
+    /**
+     * Replicate an action applied to a table's game.
+     *
+     * @param tableId id of the table
+     * @param player  index of the player who made the move, or -1 for round
+     *                actions
+     * @param action  the action, encoded as described in {@code GameAction}
+     */
+    void append(long tableId, int player, int action) {
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(MoveJournal.MOVE_SIZE);
+            if (buffer != null) {
+                MoveJournal.putMove(buffer, tableId, player, action);
+                appended();
+            }
+        }
+    }
+
+    /**
+     * Replicate the state of a table's game, which the standby checks its
+     * mirror against, or starts mirroring from if it has none.
+     *
+     * @param tableId  id of the table
+     * @param seed     seed of the game's random number generator
+     * @param botSeats bit mask of the seats taken by bots
+     * @param snapshot the game's snapshot, from its position to its limit
+     */
+    void snapshot(long tableId, long seed, int botSeats,
+                  @NotNull ByteBuffer snapshot) {
+        synchronized (lock) {
+            maxTableId = Math.max(maxTableId, tableId);
+            ByteBuffer buffer = reserve(MoveJournal.SNAPSHOT_HEADER_SIZE
+                + snapshot.remaining());
+            if (buffer != null) {
+                MoveJournal.putSnapshot(buffer, tableId, seed, botSeats,
+                    snapshot);
+                appended();
+            }
+        }
+    }
+
+    /**
+     * Replicate that a table's game is over, so the standby stops
+     * mirroring it.
+     *
+     * @param tableId id of the table
+     */
+    void finish(long tableId) {
+        synchronized (lock) {
+            ByteBuffer buffer = reserve(MoveJournal.FINISH_SIZE);
+            if (buffer != null) {
+                MoveJournal.putFinish(buffer, tableId);
+                appended();
+            }
+        }
+    }
+
+    /**
+     * Send all appended records and close the connection. If replication
+     * was abandoned, waits for the ABANDON record to be sent instead.
+     */
+    @Override
+    public void close() {
+        try {
+            synchronized (lock) {
+                while (sentSeq < appendedSeq && !closed) {
+                    lock.wait();
+                }
+                closed = true;
+                lock.notifyAll();
+            }
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeChannel();
+    }
+
+    /**
+     * Make room for a record in the pending buffer, requires holding
+     * {@code lock}.
+     *
+     * @param size size of the record in bytes
+     * @return the pending buffer, or null if the connection is closed or
+     * the backlog is full, in which case replication stops
+     */
+    private ByteBuffer reserve(int size) {
+        if (closed) {
+            return null;
+        }
+        // leave room for the SYNC record ending the batch
+        int needed = pending.position() + size + MoveJournal.SYNC_SIZE;
+        if (needed > MAX_PENDING_SIZE) {
+            System.out.println("Replication backlog is full, dropping the "
+                + "standby.");
+            abandon();
+            return null;
+        }
+        if (pending.remaining() < size + MoveJournal.SYNC_SIZE) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(MAX_PENDING_SIZE,
+                Math.max(pending.capacity() * 2, needed)));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        return pending;
+    }
+
+    /**
+     * Stop replicating while the tables carry on, requires holding
+     * {@code lock}. The records not handed to the sender yet are dropped,
+     * and the sender ends the stream with an ABANDON record.
+     */
+    private void abandon() {
+        closed = true;
+        abandoned = true;
+        pending.clear();
+        lock.notifyAll();
+    }
+
+    /**
+     * Finish appending a record, requires holding {@code lock}.
+     */
+    private void appended() {
+        appendedSeq++;
+        lock.notifyAll();
+    }
+
+    /**
+     * Send batches of pending records until the connection is closed.
+     */
+    private void sendLoop() {
+        while (true) {
+            long batchSeq;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (abandoned) {
+                    break;
+                }
+                if (closed) {
+                    return;
+                }
+                batchSeq = appendedSeq;
+                MoveJournal.putSync(pending, batchSeq,
+                    System.currentTimeMillis());
+                ByteBuffer full = pending;
+                pending = sending;
+                sending = full;
+            }
+            try {
+                sending.flip();
+                while (sending.hasRemaining()) {
+                    channel.write(sending);
+                }
+                sending.clear();
+            } catch (IOException e) {
+                System.out.println("Lost connection to the standby: "
+                    + e.getMessage());
+                synchronized (lock) {
+                    abandon();
+                }
+                if (sending.position() != 0) {
+                    // part of a record was sent, so nothing can follow it
+                    closeChannel();
+                    return;
+                }
+                break;
+            }
+            synchronized (lock) {
+                sentSeq = batchSeq;
+                lock.notifyAll();
+            }
+        }
+        sendAbandon();
+    }
+
+    /**
+     * End the stream with an ABANDON record and close the connection at
+     * once, so the standby drops its mirrors of the tables carrying on
+     * without it.
+     */
+    private void sendAbandon() {
+        ByteBuffer buffer = ByteBuffer.allocate(MoveJournal.ABANDON_SIZE);
+        synchronized (lock) {
+            MoveJournal.putAbandon(buffer, sentSeq);
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // the standby sees the connection fail instead
+        }
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing left to send
+        }
+    }
+}
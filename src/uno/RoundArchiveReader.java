@@ -0,0 +1,238 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * Query runner over a round archive written by {@code RoundArchiveWriter}.
+ * Chunks are memory-mapped and scanned in parallel, and a chunk is skipped
+ * without reading its values when the minimum and maximum in its header
+ * show that no row can match the filters. Only the columns used by a query
+ * are read.
+ *
+ * <p>For example, the win rate of players who started with two or more
+ * wild cards is
+ * {@code aggregate(ArchiveColumn.WON,
+ * List.of(new Filter(ArchiveColumn.START_WILDS, 2, Long.MAX_VALUE))).mean()},
+ * and the average round length by number of players is
+ * {@code groupBy(ArchiveColumn.NUM_PLAYERS, ArchiveColumn.ROUND_LENGTH,
+ * List.of(new Filter(ArchiveColumn.SEAT, 0, 0)))}, where the filter on the
+ * seat counts each round once.
+ */
+class RoundArchiveReader implements Closeable {
+    private static final ArchiveColumn[] COLUMNS = ArchiveColumn.values();
+
+    private final FileChannel channel;
+    /**
+     * Offset and number of rows of each chunk, in pairs.
+     */
+    private final long[] chunks;
+
+    /**
+     * Open a round archive. Chunks appended after it is opened are not
+     * seen.
+     *
+     * @param path path of the archive
+     * @throws IOException if the file cannot be read or is not a round
+     *                     archive
+     */
+    RoundArchiveReader(@NotNull Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            chunks = RoundArchiveWriter.scanChunks(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of rows in the archive
+     */
+    long getNumRows() {
+        long numRows = 0;
+        for (int i = 1; i < chunks.length; i += 2) {
+            numRows += chunks[i];
+        }
+        return numRows;
+    }
+
+    /**
+     * Count the rows that match all filters and sum a column over them.
+     *
+     * @param column  the column to sum
+     * @param filters the filters
+     * @return the count and sum
+     * @throws UncheckedIOException if the archive cannot be read
+     */
+    Aggregate aggregate(@NotNull ArchiveColumn column,
+                        @NotNull List<Filter> filters) {
+        return IntStream.range(0, chunks.length / 2).parallel()
+            .mapToObj(chunk -> {
+                long[] result = new long[2];
+                scan(chunk, filters, column, column, (key, value) -> {
+                    result[0]++;
+                    result[1] += value;
+                });
+                return new Aggregate(result[0], result[1]);
+            })
+            .reduce(new Aggregate(0, 0), Aggregate::plus);
+    }
+
+    /**
+     * Group the rows that match all filters by the value of a column, and
+     * count and sum another column in each group.
+     *
+     * @param key     the column to group by
+     * @param column  the column to sum
+     * @param filters the filters
+     * @return the count and sum of each group, by the value of {@code key}
+     * @throws UncheckedIOException if the archive cannot be read
+     */
+    Map<Long, Aggregate> groupBy(@NotNull ArchiveColumn key,
+                                 @NotNull ArchiveColumn column,
+                                 @NotNull List<Filter> filters) {
+        return IntStream.range(0, chunks.length / 2).parallel()
+            .mapToObj(chunk -> {
+                Map<Long, long[]> groups = new HashMap<>();
+                scan(chunk, filters, key, column, (k, value) -> {
+                    long[] group =
+                        groups.computeIfAbsent(k, g -> new long[2]);
+                    group[0]++;
+                    group[1] += value;
+                });
+                Map<Long, Aggregate> result = new TreeMap<>();
+                groups.forEach((k, group) ->
+                    result.put(k, new Aggregate(group[0], group[1])));
+                return result;
+            })
+            .reduce(new TreeMap<>(), (a, b) -> {
+                Map<Long, Aggregate> merged = new TreeMap<>(a);
+                b.forEach((k, v) -> merged.merge(k, v, Aggregate::plus));
+                return merged;
+            });
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Pass the key and value of every row of a chunk that matches all
+     * filters to a consumer.
+     *
+     * @param chunk    index of the chunk
+     * @param filters  the filters
+     * @param key      the key column
+     * @param column   the value column
+     * @param consumer consumer of the key and value of each matching row
+     */
+    private void scan(int chunk, List<Filter> filters, ArchiveColumn key,
+                      ArchiveColumn column, RowConsumer consumer) {
+        long offset = chunks[2 * chunk];
+        int numRows = (int) chunks[2 * chunk + 1];
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                RoundArchiveWriter.chunkSize(numRows));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (Filter filter : filters) {
+            int stats = 4 + 16 * filter.column().ordinal();
+            if (buffer.getLong(stats) > filter.max()
+                || buffer.getLong(stats + 8) < filter.min()) {
+                return;
+            }
+        }
+        int[] starts = new int[COLUMNS.length];
+        int start = 4 + 16 * COLUMNS.length;
+        for (ArchiveColumn c : COLUMNS) {
+            starts[c.ordinal()] = start;
+            start += c.getWidth() * numRows;
+        }
+        rows:
+        for (int row = 0; row < numRows; row++) {
+            for (Filter filter : filters) {
+                long value = get(buffer, filter.column(),
+                    starts[filter.column().ordinal()], row);
+                if (value < filter.min() || value > filter.max()) {
+                    continue rows;
+                }
+            }
+            consumer.accept(get(buffer, key, starts[key.ordinal()], row),
+                get(buffer, column, starts[column.ordinal()], row));
+        }
+    }
+
+    /**
+     * @param buffer the chunk
+     * @param column a column
+     * @param start  offset of the column's values in the chunk
+     * @param row    index of the row in the chunk
+     * @return the value of the column in the row
+     */
+    private static long get(MappedByteBuffer buffer, ArchiveColumn column,
+                            int start, int row) {
+        return switch (column.getWidth()) {
+            case 1 -> buffer.get(start + row);
+            case 2 -> buffer.getShort(start + 2 * row);
+            case 4 -> buffer.getInt(start + 4 * row);
+            default -> buffer.getLong(start + 8 * row);
+        };
+    }
+
+    /**
+     * Consumer of the key and value of a row.
+     */
+    @FunctionalInterface
+    private interface RowConsumer {
+        void accept(long key, long value);
+    }
+
+    /**
+     * A filter that keeps the rows where a column is within a range.
+     *
+     * @param column the column
+     * @param min    the minimum value, inclusive
+     * @param max    the maximum value, inclusive
+     */
+    record Filter(@NotNull ArchiveColumn column, long min, long max) {
+    }
+
+    /**
+     * The number of rows and the sum of a column over them.
+     *
+     * @param count number of rows
+     * @param sum   sum of the column
+     */
+    record Aggregate(long count, long sum) {
+        /**
+         * @param other another aggregate
+         * @return the aggregate of the rows of both
+         */
+        Aggregate plus(@NotNull Aggregate other) {
+            return new Aggregate(count + other.count, sum + other.sum);
+        }
+
+        /**
+         * @return the mean of the column, or NaN if there are no rows
+         */
+        double mean() {
+            return (double) sum / count;
+        }
+    }
+}
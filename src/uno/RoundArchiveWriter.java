@@ -0,0 +1,308 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writer of a round archive, a file of facts about finished rounds laid out
+ * by column so that queries read only the columns they use. Each row
+ * describes one player in one round; the columns are given by
+ * {@code ArchiveColumn}. Rows are grouped into chunks, and each chunk
+ * starts with the minimum and maximum value of every column, which lets
+ * {@code RoundArchiveReader} skip chunks that cannot match a filter.
+ *
+ * <p>Games are recorded from their seed and actions, the same way they are
+ * kept by {@code MoveJournal} and {@code ReplayFile}, and played again to
+ * extract the facts. Writers may be shared by several tables.
+ */
+class RoundArchiveWriter implements Closeable {
+    /*
+     * File layout, all big-endian:
+     * - header: magic (int), version (short), number of columns (short)
+     * - chunks, each made of: number of rows (int), minimum and maximum of
+     *   each column (long, long), then the values of each column in turn
+     *   with the width given by ArchiveColumn
+     * A chunk cut short by a crash is removed when the file is reopened.
+     */
+    static final int MAGIC = 0x554E4F41;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    /**
+     * Maximum number of rows in a chunk.
+     */
+    static final int CHUNK_ROWS = 1 << 16;
+
+    private static final ArchiveColumn[] COLUMNS = ArchiveColumn.values();
+    /**
+     * Mask of the card indices of wild cards, in the low and high bits of a
+     * hand.
+     */
+    private static final long[] WILD_MASK = new long[2];
+    /**
+     * Mask of the card indices of action cards, in the low and high bits of
+     * a hand.
+     */
+    private static final long[] ACTION_MASK = new long[2];
+
+    static {
+        for (int i = 0; i < Card.NUM_CARDS; i++) {
+            CardType type = Card.fromIndex(i).type();
+            if (type.isWild()) {
+                WILD_MASK[i >> 6] |= 1L << (i & 63);
+            } else if (type == CardType.DRAW_TWO || type == CardType.REVERSE
+                || type == CardType.SKIP) {
+                ACTION_MASK[i >> 6] |= 1L << (i & 63);
+            }
+        }
+    }
+
+    private final FileChannel channel;
+    /**
+     * Values of the rows not yet written, indexed by column ordinal then
+     * row.
+     */
+    private final long[][] rows;
+    private int numRows;
+
+    /**
+     * Open a round archive for appending, creating the file if it does not
+     * exist.
+     *
+     * @param path path of the archive
+     * @throws IOException if the file cannot be written or is not a round
+     *                     archive
+     */
+    RoundArchiveWriter(@NotNull Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION)
+                    .putShort((short) COLUMNS.length).flip();
+                channel.write(header, 0);
+            }
+            long[] chunks = scanChunks(channel);
+            long end = chunks.length == 0 ? HEADER_SIZE
+                : chunks[chunks.length - 2]
+                + chunkSize((int) chunks[chunks.length - 1]);
+            channel.truncate(end);
+            channel.position(end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        rows = new long[COLUMNS.length][CHUNK_ROWS];
+    }
+
+    /**
+     * Record the finished rounds of a game.
+     *
+     * @param numPlayers number of players
+     * @param seed       seed of the game's random number generator
+     * @param actions    the actions applied to the game, starting from a new
+     *                   game, encoded as described in {@code GameAction}
+     * @param numActions number of actions in {@code actions}
+     * @throws IOException if the archive cannot be written
+     */
+    synchronized void recordGame(int numPlayers, long seed,
+                                 @NotNull int[] actions, int numActions)
+        throws IOException {
+        Game game = new Game(numPlayers, new SnapshotRandom(seed));
+        long[][] hands = new long[numPlayers][2];
+        int[] moves = new int[numPlayers];
+        int firstPlayer = 0;
+        int roundLength = 0;
+        for (int i = 0; i < numActions; i++) {
+            int action = actions[i];
+            int type = GameAction.type(action);
+            if (type < GameAction.START_ROUND) {
+                int player = switch (type) {
+                    case GameAction.CHALLENGE_UNO -> GameAction.arg(action);
+                    case GameAction.CALL_LATE_UNO -> game.getLastPlayed();
+                    default -> game.getActivePlayer();
+                };
+                moves[player]++;
+                roundLength++;
+            }
+            game.apply(action);
+            if (type == GameAction.START_ROUND) {
+                for (int p = 0; p < numPlayers; p++) {
+                    Arrays.fill(hands[p], 0);
+                    for (Card card : game.getHand(p)) {
+                        int index = card.index();
+                        hands[p][index >> 6] |= 1L << (index & 63);
+                    }
+                }
+                Arrays.fill(moves, 0);
+                firstPlayer = game.getActivePlayer();
+                roundLength = 0;
+            } else if (type < GameAction.START_ROUND
+                && game.getState() == GameState.ROUND_OVER) {
+                int[][] scores = game.getScores();
+                for (int p = 0; p < numPlayers; p++) {
+                    boolean won = game.getHandSize(p) == 0;
+                    addRow(numPlayers, p, p == firstPlayer, roundLength,
+                        moves[p], hands[p], won,
+                        won ? scores[p][2] : scores[p][1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the buffered rows and close the archive.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeChunk();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Buffer a row, writing a chunk if the buffer is full.
+     */
+    private void addRow(int numPlayers, int seat, boolean started,
+                        int roundLength, int moves, long[] hand, boolean won,
+                        int points) throws IOException {
+        for (ArchiveColumn column : COLUMNS) {
+            rows[column.ordinal()][numRows] = switch (column) {
+                case NUM_PLAYERS -> numPlayers;
+                case SEAT -> seat;
+                case STARTED -> started ? 1 : 0;
+                case ROUND_LENGTH -> roundLength;
+                case MOVES -> moves;
+                case START_WILDS -> Long.bitCount(hand[0] & WILD_MASK[0])
+                    + Long.bitCount(hand[1] & WILD_MASK[1]);
+                case START_ACTION_CARDS ->
+                    Long.bitCount(hand[0] & ACTION_MASK[0])
+                        + Long.bitCount(hand[1] & ACTION_MASK[1]);
+                case START_POINTS -> handPoints(hand);
+                case HAND_LOW -> hand[0];
+                case HAND_HIGH -> hand[1];
+                case WON -> won ? 1 : 0;
+                case POINTS -> points;
+            };
+        }
+        if (++numRows == CHUNK_ROWS) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * @param hand a hand, as a bit mask of card indices
+     * @return the total point value of the cards in the hand
+     */
+    private static int handPoints(long[] hand) {
+        int points = 0;
+        for (int i = 0; i < Card.NUM_CARDS; i++) {
+            if ((hand[i >> 6] & (1L << (i & 63))) != 0) {
+                points += Card.fromIndex(i).type().getValue();
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Write the buffered rows as a chunk.
+     */
+    private void writeChunk() throws IOException {
+        if (numRows == 0) {
+            return;
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(chunkSize(numRows));
+        chunk.putInt(numRows);
+        for (long[] values : rows) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < numRows; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            chunk.putLong(min).putLong(max);
+        }
+        for (ArchiveColumn column : COLUMNS) {
+            long[] values = rows[column.ordinal()];
+            for (int i = 0; i < numRows; i++) {
+                switch (column.getWidth()) {
+                    case 1 -> chunk.put((byte) values[i]);
+                    case 2 -> chunk.putShort((short) values[i]);
+                    case 4 -> chunk.putInt((int) values[i]);
+                    default -> chunk.putLong(values[i]);
+                }
+            }
+        }
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        numRows = 0;
+    }
+
+    /**
+     * @param numRows number of rows in a chunk
+     * @return the size of the chunk in bytes
+     */
+    static int chunkSize(int numRows) {
+        int size = 4 + 16 * COLUMNS.length;
+        for (ArchiveColumn column : COLUMNS) {
+            size += column.getWidth() * numRows;
+        }
+        return size;
+    }
+
+    /**
+     * Check the header of a round archive and find its whole chunks.
+     *
+     * @param channel the archive
+     * @return the offset and number of rows of each whole chunk, in pairs
+     * @throws IOException if the file cannot be read or is not a round
+     *                     archive
+     */
+    static long[] scanChunks(@NotNull FileChannel channel)
+        throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC
+            || header.getShort() != VERSION
+            || header.getShort() != COLUMNS.length) {
+            throw new IOException("Not a round archive.");
+        }
+        long[] found = new long[16];
+        int numChunks = 0;
+        long position = HEADER_SIZE;
+        ByteBuffer rowCount = ByteBuffer.allocate(4);
+        while (position + 4 <= size) {
+            rowCount.clear();
+            channel.read(rowCount, position);
+            int numRows = rowCount.getInt(0);
+            if (numRows <= 0 || numRows > CHUNK_ROWS
+                || position + chunkSize(numRows) > size) {
+                break;
+            }
+            if (2 * numChunks + 2 > found.length) {
+                found = Arrays.copyOf(found, 2 * found.length);
+            }
+            found[2 * numChunks] = position;
+            found[2 * numChunks + 1] = numRows;
+            numChunks++;
+            position += chunkSize(numRows);
+        }
+        return Arrays.copyOf(found, 2 * numChunks);
+    }
+}
@@ -1,5 +1,8 @@
 package uno;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -56,6 +59,52 @@ class Scoreboard {
         goalReached = false;
     }
 
+    /**
+     * Create a copy of a scoreboard.
+     *
+     * @param other the scoreboard to copy
+     */
+    Scoreboard(Scoreboard other) {
+        numPlayers = other.numPlayers;
+        prevScores = other.prevScores.clone();
+        contribScores = other.contribScores.clone();
+        addedScores = other.addedScores.clone();
+        currScores = other.currScores.clone();
+        goalReached = other.goalReached;
+    }
+
+    /**
+     * Read a scoreboard written by {@code write}.
+     *
+     * @param numPlayers number of players, positive
+     * @param buffer     the buffer to read from
+     */
+    Scoreboard(int numPlayers, @NotNull ByteBuffer buffer) {
+        this(numPlayers);
+        for (int[] scores : new int[][]{prevScores, contribScores,
+            addedScores, currScores}) {
+            for (int i = 0; i < numPlayers; i++) {
+                scores[i] = buffer.getInt();
+            }
+        }
+        goalReached = buffer.get() != 0;
+    }
+
+    /**
+     * Write the scoreboard to a buffer.
+     *
+     * @param buffer the buffer to write to
+     */
+    void write(@NotNull ByteBuffer buffer) {
+        for (int[] scores : new int[][]{prevScores, contribScores,
+            addedScores, currScores}) {
+            for (int score : scores) {
+                buffer.putInt(score);
+            }
+        }
+        buffer.put((byte) (goalReached ? 1 : 0));
+    }
+
     /**
      * Reset the scoreboard.
      */
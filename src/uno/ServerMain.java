@@ -3,6 +3,10 @@ package uno;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class ServerMain {
     public static void main(String[] args) throws IOException {
@@ -10,9 +14,117 @@ public class ServerMain {
             new BufferedReader(new InputStreamReader(System.in));
         System.out.print("Enter port: ");
         int port = Integer.parseInt(reader.readLine());
-        System.out.print("Enter number of players: ");
-        int numPlayers = Integer.parseInt(reader.readLine());
-        UnoServer server = new UnoServer(port, numPlayers);
-        server.start();
+        System.out.print("Enter journal file (blank for none): ");
+        String journalFile = reader.readLine().strip();
+        MoveJournal journal = journalFile.isEmpty()
+            ? null : new MoveJournal(Path.of(journalFile));
+        Collection<MoveJournal.RecoveredTable> tables = journal == null
+            ? List.of() : journal.getUnfinishedTables().values();
+        Bot bot = new IsmctsBot();
+        // unfinished games are resumed on a table host, where the players
+        // rejoin their seats, and a new game is only started if there are
+        // none
+        TableHost host = null;
+        UnoServer server = null;
+        long tableId = 0;
+        if (!tables.isEmpty()) {
+            System.out.println("Resuming " + tables.size()
+                + " unfinished games.");
+            if (tables.stream().anyMatch(table -> table.botSeats() != 0)) {
+                System.out.print("Use fast rule-based bots? (y/n): ");
+                if (reader.readLine().equals("y")) {
+                    bot = new HeuristicBot();
+                }
+            }
+            host = new TableHost(port, bot, ForkJoinPool.commonPool());
+            host.setJournal(journal);
+        } else {
+            System.out.print("Enter number of players: ");
+            int numPlayers = Integer.parseInt(reader.readLine());
+            System.out.print("Enter number of bots: ");
+            int numBots = Integer.parseInt(reader.readLine());
+            if (numBots > 0) {
+                System.out.print("Use fast rule-based bots? (y/n): ");
+                if (reader.readLine().equals("y")) {
+                    bot = new HeuristicBot();
+                }
+            }
+            server = new UnoServer(port, numPlayers, numBots, bot);
+            if (journal != null) {
+                tableId = journal.newTableId();
+                server.setJournal(journal, tableId);
+            }
+            System.out.print("Enter replay file (blank for none): ");
+            String replayFile = reader.readLine().strip();
+            if (!replayFile.isEmpty()) {
+                server.setReplayFile(Path.of(replayFile));
+            }
+        }
+        System.out.print("Enter round archive file (blank for none): ");
+        String archiveFile = reader.readLine().strip();
+        RoundArchiveWriter archive = archiveFile.isEmpty()
+            ? null : new RoundArchiveWriter(Path.of(archiveFile));
+        if (archive != null && host != null) {
+            host.setArchive(archive);
+        } else if (archive != null) {
+            server.setArchive(archive);
+        }
+        System.out.print("Enter ratings file (blank for none): ");
+        String ratingsFile = reader.readLine().strip();
+        RatingService ratings = ratingsFile.isEmpty()
+            ? null : new RatingService(Path.of(ratingsFile), 60);
+        if (ratings != null && host != null) {
+            host.setRatings(ratings);
+        } else if (ratings != null) {
+            server.setRatings(ratings);
+        }
+        System.out.print("Enter standby host (blank for none): ");
+        String standbyHost = reader.readLine().strip();
+        ReplicationSender replication = null;
+        if (!standbyHost.isEmpty()) {
+            System.out.print("Enter standby replication port: ");
+            int standbyPort = Integer.parseInt(reader.readLine());
+            replication = new ReplicationSender(standbyHost, standbyPort);
+            if (host != null) {
+                host.setReplication(replication);
+            } else {
+                if (journal == null) {
+                    tableId = replication.newTableId();
+                }
+                server.setReplication(replication, tableId);
+            }
+        }
+        if (host != null) {
+            TableHost resumed = host;
+            host.resume(tables).whenComplete((result, error) -> {
+                try {
+                    resumed.stop();
+                } catch (IOException e) {
+                    // the host is stopping either way
+                }
+            });
+            System.out.println("Waiting for the players to rejoin on port "
+                + host.getPort() + ".");
+            host.start();
+        } else {
+            server.setSpeculative(true);
+            server.start();
+        }
+        if (archive != null) {
+            archive.close();
+        }
+        if (ratings != null) {
+            for (RatingService.Rating rating : ratings.getTopRatings(10)) {
+                System.out.printf("%s: %.0f (%d games)%n", rating.name(),
+                    rating.rating(), rating.games());
+            }
+            ratings.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (replication != null) {
+            replication.close();
+        }
     }
 }
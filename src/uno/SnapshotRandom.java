@@ -0,0 +1,65 @@
+package uno;
+
+import java.util.Random;
+
+/**
+ * A random number generator whose state can be saved and restored, so that
+ * a snapshot of a game can continue exactly like the original. It produces
+ * the same numbers as {@code java.util.Random} with the same seed, except
+ * for {@code nextGaussian}, whose cached second value is not part of the
+ * saved state. Unlike {@code java.util.Random}, it is not thread-safe.
+ */
+class SnapshotRandom extends Random {
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    /**
+     * Internal state of the generator. It is not initialized here because
+     * the superclass constructor sets it through {@code setSeed}.
+     */
+    private long state;
+
+    /**
+     * Create a generator with a random seed.
+     */
+    SnapshotRandom() {
+        super();
+    }
+
+    /**
+     * Create a generator.
+     *
+     * @param seed the initial seed
+     */
+    SnapshotRandom(long seed) {
+        super(seed);
+    }
+
+    /**
+     * @return the internal state of the generator
+     */
+    long getState() {
+        return state;
+    }
+
+    /**
+     * @param state an internal state returned by {@code getState}
+     */
+    void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
@@ -0,0 +1,22 @@
+package uno;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+public class StandbyMain {
+    public static void main(String[] args) throws IOException {
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(System.in));
+        System.out.print("Enter replication port: ");
+        int replicationPort = Integer.parseInt(reader.readLine());
+        System.out.print("Enter port for the players to rejoin on: ");
+        int port = Integer.parseInt(reader.readLine());
+        Bot bot = new IsmctsBot();
+        System.out.print("Use fast rule-based bots? (y/n): ");
+        if (reader.readLine().equals("y")) {
+            bot = new HeuristicBot();
+        }
+        new StandbyServer(replicationPort, port, bot).start();
+    }
+}
@@ -0,0 +1,185 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Hot standby for a server's tables. Mirrors every game from the records a
+ * {@code ReplicationSender} streams to it, and when the connection to the
+ * primary server is lost, takes over the unfinished tables on a
+ * {@code TableHost}, where the players rejoin their seats and carry on
+ * from the last move it received. If the primary abandons replication
+ * while its tables carry on, the mirrors are out of date, so they are
+ * dropped and nothing is taken over.
+ *
+ * <p>Replication lag is the time from when the primary sent a batch to
+ * when the standby applied it, measured with the primary's clock, so it is
+ * only meaningful when both run on the same host or synchronized clocks.
+ */
+class StandbyServer {
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    /**
+     * Time between reports of the replication statistics in nanoseconds.
+     */
+    private static final long REPORT_INTERVAL = 5_000_000_000L;
+
+    private final int replicationPort;
+    private final int port;
+    private final Bot bot;
+    private final MoveJournal.Replayer replayer = new MoveJournal.Replayer();
+
+    /**
+     * Time the primary server connected in nanoseconds.
+     */
+    private long connectTime;
+    /**
+     * Replication lag of the last batch in milliseconds.
+     */
+    private long lag;
+    /**
+     * Largest replication lag seen in milliseconds.
+     */
+    private long maxLag;
+
+    /**
+     * @param replicationPort port to listen on for the primary server
+     * @param port            port the players rejoin the tables taken over
+     *                        on
+     * @param bot             bot to play the bot seats of the tables taken
+     *                        over
+     */
+    StandbyServer(int replicationPort, int port, @NotNull Bot bot) {
+        this.replicationPort = replicationPort;
+        this.port = port;
+        this.bot = bot;
+    }
+
+    /**
+     * Mirror the primary's tables until the connection to it is lost, then
+     * take over the unfinished tables and play them until they are over.
+     *
+     * @throws IOException if the replication port or the port for the
+     *                     players cannot be opened
+     */
+    void start() throws IOException {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(replicationPort));
+            System.out.println("Waiting for the primary server on port "
+                + replicationPort + ".");
+            try (SocketChannel channel = serverChannel.accept()) {
+                System.out.println("Primary server connected.");
+                connectTime = System.nanoTime();
+                mirror(channel);
+            } catch (IOException e) {
+                System.out.println("Lost connection to the primary server: "
+                    + e.getMessage());
+            }
+        }
+        report(replayer.getNumRecords(), System.nanoTime() - connectTime);
+        if (replayer.isAbandoned()) {
+            System.out.println("Replication was abandoned, not taking "
+                + "over.");
+            return;
+        }
+        takeOver();
+    }
+
+    /**
+     * Apply records from the primary until it disconnects or abandons
+     * replication.
+     */
+    private void mirror(SocketChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        long lastReport = connectTime;
+        long lastRecords = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                // a record larger than the buffer
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            if (channel.read(buffer) == -1) {
+                if (buffer.position() != 0) {
+                    throw new EOFException("Record cut short.");
+                }
+                System.out.println("Primary server disconnected.");
+                return;
+            }
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    byte type = replayer.apply(buffer);
+                    if (type == MoveJournal.SYNC) {
+                        lag = System.currentTimeMillis()
+                            - replayer.getLastSyncTime();
+                        maxLag = Math.max(maxLag, lag);
+                    } else if (type == MoveJournal.ABANDON) {
+                        System.out.println("Primary server abandoned "
+                            + "replication.");
+                        return;
+                    }
+                }
+            } catch (BufferUnderflowException e) {
+                // wait for the rest of the record
+            }
+            buffer.compact();
+            long now = System.nanoTime();
+            if (now - lastReport >= REPORT_INTERVAL) {
+                report(replayer.getNumRecords() - lastRecords,
+                    now - lastReport);
+                lastReport = now;
+                lastRecords = replayer.getNumRecords();
+            }
+        }
+    }
+
+    /**
+     * Print the replication statistics.
+     *
+     * @param records records applied since the last report
+     * @param elapsed time since the last report in nanoseconds
+     */
+    private void report(long records, long elapsed) {
+        double rate = (elapsed == 0) ? 0 : records * 1e9 / elapsed;
+        System.out.printf("Standby: %d tables, %d records applied "
+                + "(%.0f/s), primary at record %d, lag %d ms (max %d ms), "
+                + "%d divergences, %d failed tables%n",
+            replayer.getNumTables(), replayer.getNumRecords(), rate,
+            replayer.getLastSyncSeq(), lag, maxLag,
+            replayer.getNumDivergences(), replayer.getNumFailedTables());
+    }
+
+    /**
+     * Resume every unfinished table and wait until they are over.
+     */
+    private void takeOver() throws IOException {
+        Map<Long, MoveJournal.RecoveredTable> tables =
+            replayer.getUnfinishedTables();
+        if (tables.isEmpty()) {
+            System.out.println("No tables to take over.");
+            return;
+        }
+        TableHost host = new TableHost(port, bot, ForkJoinPool.commonPool());
+        host.resume(tables.values()).whenComplete((result, error) -> {
+            try {
+                host.stop();
+            } catch (IOException e) {
+                // the host is stopping either way
+            }
+        });
+        System.out.println("Taking over " + tables.size() + " tables on port "
+            + host.getPort() + ".");
+        host.start();
+    }
+}
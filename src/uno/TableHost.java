@@ -0,0 +1,380 @@
+package uno;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server for many tables on one port, run as a backend of
+ * {@code UnoGateway} or on its own. Each connection starts with a
+ * {@code TableRoute} line naming its table; the first connection to a table
+ * sets its number of players and bots, and the table starts once every
+ * seat is taken. Tables run as actors on a shared pool, and share the
+ * host's journal, round archive, rating service and standby, if it has
+ * them.
+ *
+ * <p>Tables rebuilt after a server stopped can be resumed on the host.
+ * Each player rejoins with a route naming the table and their old seat,
+ * and the table carries on once every seat is taken back. Routes to an
+ * unknown table, a bot's seat or a seat already taken are answered with
+ * an error and closed.
+ */
+class TableHost {
+    private final ServerSocket serverSocket;
+    private final Bot bot;
+    private final ForkJoinPool pool;
+    /**
+     * Threads that read route lines, so a slow client does not hold up
+     * the others.
+     */
+    private final ExecutorService handshakes;
+    /**
+     * Tables waiting for players, by id, guarded by itself.
+     */
+    private final Map<String, Lobby> lobbies;
+    /**
+     * Resumed tables waiting for their players to rejoin, by id, guarded by
+     * {@code lobbies}.
+     */
+    private final Map<String, RejoinLobby> rejoinLobbies;
+    private final AtomicInteger numRunning;
+    private MoveJournal journal;
+    private RoundArchiveWriter archive;
+    private RatingService ratings;
+    private ReplicationSender replication;
+
+    /**
+     * Create a table host.
+     *
+     * @param port port to listen on
+     * @param bot  bot to play the bot seats
+     * @param pool pool to run the tables on
+     * @throws IOException if the port cannot be listened on
+     */
+    TableHost(int port, @NotNull Bot bot, @NotNull ForkJoinPool pool)
+        throws IOException {
+        serverSocket = new ServerSocket(port);
+        this.bot = bot;
+        this.pool = pool;
+        handshakes = Executors.newCachedThreadPool();
+        lobbies = new HashMap<>();
+        rejoinLobbies = new HashMap<>();
+        numRunning = new AtomicInteger();
+    }
+
+    /**
+     * Record every move of every table in a journal, with the commits of
+     * all tables grouped together. Must be called before {@code start()}.
+     *
+     * @param journal the journal
+     */
+    void setJournal(@NotNull MoveJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Record the rounds of every game in a round archive. Must be called
+     * before {@code start()}.
+     *
+     * @param archive the archive
+     */
+    void setArchive(@NotNull RoundArchiveWriter archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Update the players' ratings after every game. Must be called before
+     * {@code start()}.
+     *
+     * @param ratings the rating service
+     */
+    void setRatings(@NotNull RatingService ratings) {
+        this.ratings = ratings;
+    }
+
+    /**
+     * Stream every move of every table to a standby server. Must be called
+     * before {@code start()}.
+     *
+     * @param replication the connection to the standby
+     */
+    void setReplication(@NotNull ReplicationSender replication) {
+        this.replication = replication;
+    }
+
+    /**
+     * @return the port the host listens on
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return the number of tables being played
+     */
+    int getNumRunning() {
+        return numRunning.get();
+    }
+
+    /**
+     * Resume tables rebuilt after a server stopped. Each starts once its
+     * players have rejoined. Moves are recorded in the host's journal,
+     * which must be the one the tables were rebuilt from, if there is one.
+     *
+     * @param tables the rebuilt tables
+     * @return a future completed when every table is over or has failed
+     */
+    CompletableFuture<Void> resume(
+        @NotNull Collection<MoveJournal.RecoveredTable> tables) {
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        synchronized (lobbies) {
+            for (MoveJournal.RecoveredTable table : tables) {
+                RejoinLobby lobby = new RejoinLobby(table);
+                rejoinLobbies.put(Long.toString(table.id()), lobby);
+                done.add(lobby.done);
+            }
+        }
+        return CompletableFuture.allOf(
+            done.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Accept connections until the server socket is closed.
+     */
+    void start() {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                handshakes.execute(() -> join(socket));
+            }
+        } catch (IOException e) {
+            // the server socket was closed
+        } finally {
+            handshakes.shutdown();
+        }
+    }
+
+    /**
+     * Stop accepting connections. Tables being played are not stopped.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * Read the route of a connection and seat it at its table, starting the
+     * table if it is full.
+     *
+     * @param socket the connection
+     */
+    private void join(Socket socket) {
+        TableRoute route;
+        try {
+            route = TableRoute.read(socket.getInputStream());
+        } catch (IOException e) {
+            closeQuietly(socket);
+            return;
+        }
+        if (route.seat() >= 0) {
+            rejoin(route, socket);
+            return;
+        }
+        List<Socket> players = null;
+        Lobby lobby;
+        synchronized (lobbies) {
+            lobby = lobbies.get(route.table());
+            if (lobby == null) {
+                int numHumans = route.players() - route.bots();
+                if (route.players() < Game.MIN_PLAYERS
+                    || route.players() > Game.MAX_PLAYERS || numHumans < 1) {
+                    closeQuietly(socket);
+                    return;
+                }
+                lobby = new Lobby(route.players(), route.bots());
+                lobbies.put(route.table(), lobby);
+            }
+            lobby.sockets.add(socket);
+            if (lobby.sockets.size() == lobby.numPlayers - lobby.numBots) {
+                lobbies.remove(route.table());
+                players = lobby.sockets;
+            }
+        }
+        if (players != null) {
+            // tables take their ids from the journal if there is one, so
+            // that they are the same on the standby
+            long tableId = (journal != null) ? journal.newTableId()
+                : (replication != null) ? replication.newTableId() : 0;
+            startTable(route.table(), tableId,
+                new UnoServer(lobby.numPlayers, lobby.numBots, bot, players),
+                players);
+        }
+    }
+
+    /**
+     * Seat a player rejoining a resumed table, starting the table if every
+     * seat has been taken back.
+     *
+     * @param route  the player's route
+     * @param socket the connection
+     */
+    private void rejoin(TableRoute route, Socket socket) {
+        RejoinLobby lobby;
+        String error = null;
+        boolean isFull = false;
+        synchronized (lobbies) {
+            lobby = rejoinLobbies.get(route.table());
+            int seat = route.seat();
+            if (lobby == null) {
+                error = "Unknown table.";
+            } else if (seat >= lobby.seats.length
+                || (lobby.table.botSeats() & (1 << seat)) != 0) {
+                error = "Unknown seat.";
+            } else if (lobby.seats[seat] != null) {
+                error = "Seat already taken.";
+            } else {
+                lobby.seats[seat] = socket;
+                lobby.numRejoined++;
+                isFull = lobby.numRejoined == lobby.seats.length
+                    - Integer.bitCount(lobby.table.botSeats());
+                if (isFull) {
+                    rejoinLobbies.remove(route.table());
+                }
+            }
+        }
+        if (error != null) {
+            reject(socket, error);
+            return;
+        }
+        if (isFull) {
+            List<Socket> players = Arrays.stream(lobby.seats)
+                .filter(Objects::nonNull).toList();
+            startTable(route.table(), lobby.table.id(),
+                new UnoServer(lobby.table, bot, players), players)
+                .whenComplete((result, e) -> lobby.done.complete(null));
+        }
+    }
+
+    /**
+     * Start a full table.
+     *
+     * @param id      id of the table
+     * @param tableId id of the table in the journal and on the standby, or
+     *                0 if there are neither
+     * @param server  the table's server
+     * @param players the connections of the players
+     * @return a future completed when the table is over or has failed
+     */
+    private CompletableFuture<Void> startTable(String id, long tableId,
+                                               UnoServer server,
+                                               List<Socket> players) {
+        server.setPool(pool);
+        server.setSpeculative(true);
+        if (journal != null) {
+            server.setJournal(journal, tableId);
+        }
+        if (replication != null) {
+            server.setReplication(replication, tableId);
+        }
+        if (archive != null) {
+            server.setArchive(archive);
+        }
+        if (ratings != null) {
+            server.setRatings(ratings);
+        }
+        numRunning.incrementAndGet();
+        try {
+            return server.startAsync().whenComplete((result, error) -> {
+                numRunning.decrementAndGet();
+                if (error != null) {
+                    System.out.println("Table " + id + " failed: " + error);
+                }
+                players.forEach(TableHost::closeQuietly);
+            });
+        } catch (IOException e) {
+            numRunning.decrementAndGet();
+            System.out.println("Table " + id + " failed: " + e);
+            players.forEach(TableHost::closeQuietly);
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Send an error to a connection and close it.
+     *
+     * @param socket the connection
+     * @param reason the error
+     */
+    private static void reject(Socket socket, String reason) {
+        JsonObject errorJson = new JsonObject();
+        errorJson.add("type", new JsonPrimitive("error"));
+        errorJson.add("reason", new JsonPrimitive(reason));
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write((errorJson + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            // the connection is closed either way
+        }
+        closeQuietly(socket);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do with the connection
+        }
+    }
+
+    /**
+     * A table waiting for players.
+     */
+    private static class Lobby {
+        private final int numPlayers;
+        private final int numBots;
+        private final List<Socket> sockets = new ArrayList<>();
+
+        Lobby(int numPlayers, int numBots) {
+            this.numPlayers = numPlayers;
+            this.numBots = numBots;
+        }
+    }
+
+    /**
+     * A resumed table waiting for its players to rejoin.
+     */
+    private static class RejoinLobby {
+        private final MoveJournal.RecoveredTable table;
+        /**
+         * Connections of the players who have rejoined, by seat.
+         */
+        private final Socket[] seats;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private int numRejoined;
+
+        RejoinLobby(MoveJournal.RecoveredTable table) {
+            this.table = table;
+            seats = new Socket[table.game().numPlayers];
+        }
+    }
+}
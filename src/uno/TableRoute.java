@@ -0,0 +1,138 @@
+package uno;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The first line a client sends to a {@code UnoGateway} or a
+ * {@code TableHost}, naming the table to join. Every line after it is a
+ * game frame, which the gateway forwards without reading. A player
+ * rejoining a table resumed after its server stopped names the table by
+ * its id in the journal and the seat they had, which they take back.
+ *
+ * @param table   id of the table
+ * @param players number of players, used by the first client to join
+ * @param bots    number of bots, used by the first client to join
+ * @param seat    seat to take back at a resumed table, or -1 to join a
+ *                new table
+ */
+record TableRoute(@NotNull String table, int players, int bots, int seat) {
+    private static final Gson GSON = new Gson();
+    /**
+     * Maximum length in bytes of a route line.
+     */
+    static final int MAX_LINE_LENGTH = 1024;
+
+    /**
+     * Create a route to a new table.
+     *
+     * @param table   id of the table
+     * @param players number of players, used by the first client to join
+     * @param bots    number of bots, used by the first client to join
+     */
+    TableRoute(@NotNull String table, int players, int bots) {
+        this(table, players, bots, -1);
+    }
+
+    /**
+     * @param tableId id of the table in the journal, or on the standby
+     * @param seat    the seat the player had
+     * @return a route back to a seat at a resumed table
+     */
+    static TableRoute rejoin(long tableId, int seat) {
+        return new TableRoute(Long.toString(tableId), 0, 0, seat);
+    }
+
+    /**
+     * Write the route as a line.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    void write(@NotNull OutputStream out) throws IOException {
+        JsonObject json = new JsonObject();
+        json.add("table", new JsonPrimitive(table));
+        json.add("players", new JsonPrimitive(players));
+        json.add("bots", new JsonPrimitive(bots));
+        if (seat >= 0) {
+            json.add("seat", new JsonPrimitive(seat));
+        }
+        out.write((json + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Read a route line from a stream, reading nothing past the end of the
+     * line, so that the stream can then be forwarded as it is.
+     *
+     * @param in the stream to read from
+     * @return the route
+     * @throws IOException if the stream cannot be read, ends early, or does
+     *                     not start with a valid route line
+     */
+    static TableRoute read(@NotNull InputStream in) throws IOException {
+        byte[] line = new byte[MAX_LINE_LENGTH];
+        int length = 0;
+        while (true) {
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Connection closed before route.");
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (length == line.length) {
+                throw new IOException("Route line too long.");
+            }
+            line[length++] = (byte) b;
+        }
+        JsonElement json;
+        try {
+            json = GSON.fromJson(
+                new String(line, 0, length, StandardCharsets.UTF_8),
+                JsonElement.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid route line.", e);
+        }
+        if (json == null || !json.isJsonObject()) {
+            throw new IOException("Invalid route line.");
+        }
+        JsonObject routeJson = json.getAsJsonObject();
+        JsonElement table = routeJson.get("table");
+        int players = getInt(routeJson, "players");
+        int bots = getInt(routeJson, "bots");
+        if (table == null || !table.isJsonPrimitive() || players < 0
+            || bots < 0) {
+            throw new IOException("Invalid route line.");
+        }
+        // a missing seat is -1, like an invalid one
+        return new TableRoute(table.getAsString(), players, bots,
+            getInt(routeJson, "seat"));
+    }
+
+    /**
+     * @param json JSON object
+     * @param key  key of the member
+     * @return the member as a non-negative int, or -1 if it is missing or
+     * not a non-negative int
+     */
+    private static int getInt(JsonObject json, String key) {
+        JsonElement element = json.get(key);
+        if (element == null || !element.isJsonPrimitive()
+            || !element.getAsJsonPrimitive().isNumber()) {
+            return -1;
+        }
+        double value = element.getAsDouble();
+        return (value >= 0 && value <= Integer.MAX_VALUE
+            && value == Math.floor(value)) ? (int) value : -1;
+    }
+}
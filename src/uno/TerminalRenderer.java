@@ -0,0 +1,93 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Draws frames of text to a terminal. A frame is built line by line and
+ * then written in a single write. With ANSI cursor control, only the lines
+ * that differ from the previous frame are rewritten in place, and anything
+ * below the frame, such as the player's last input, is cleared. Without
+ * it, each frame is written in full below the last one. Not thread-safe.
+ */
+class TerminalRenderer {
+    /**
+     * Control sequence introducer.
+     */
+    private static final String CSI = "\u001b[";
+
+    private final PrintStream out;
+    private final boolean ansi;
+    private List<String> frame = new ArrayList<>();
+    private List<String> previous = new ArrayList<>();
+    /**
+     * Whether the screen has been cleared for the first frame.
+     */
+    private boolean cleared;
+
+    /**
+     * @param out  the stream to write to
+     * @param ansi whether the terminal understands ANSI cursor control
+     */
+    TerminalRenderer(@NotNull PrintStream out, boolean ansi) {
+        this.out = out;
+        this.ansi = ansi;
+    }
+
+    /**
+     * Add a line to the frame being built.
+     *
+     * @param line the line, which may not contain line breaks
+     */
+    void println(@NotNull String line) {
+        frame.add(line);
+    }
+
+    /**
+     * Add an empty line to the frame being built.
+     */
+    void println() {
+        frame.add("");
+    }
+
+    /**
+     * Write the frame built since the last call and start a new one.
+     */
+    void render() {
+        StringBuilder buffer = new StringBuilder();
+        if (ansi) {
+            if (!cleared) {
+                buffer.append(CSI).append("H").append(CSI).append("2J");
+            }
+            for (int i = 0; i < frame.size(); i++) {
+                String line = frame.get(i);
+                if (cleared && i < previous.size()
+                    && line.equals(previous.get(i))) {
+                    continue;
+                }
+                // move to the line, write it and erase the rest of it
+                buffer.append(CSI).append(i + 1).append(";1H").append(line)
+                    .append(CSI).append("K");
+            }
+            // erase everything below the frame and leave the cursor there
+            buffer.append(CSI).append(frame.size() + 1).append(";1H")
+                .append(CSI).append("J");
+            cleared = true;
+        } else {
+            for (String line : frame) {
+                buffer.append(line).append(System.lineSeparator());
+            }
+        }
+        byte[] bytes = buffer.toString().getBytes(Charset.defaultCharset());
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+        List<String> swap = previous;
+        previous = frame;
+        frame = swap;
+        frame.clear();
+    }
+}
@@ -0,0 +1,62 @@
+package uno;
+
+/**
+ * Token bucket rate limiter. Tokens are added at a fixed rate up to a
+ * maximum, and each event takes one, so events can come in bursts of up to
+ * the maximum but average no more than the rate. Not thread-safe.
+ */
+class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Create a full token bucket.
+     *
+     * @param ratePerSecond tokens added per second, positive
+     * @param capacity      maximum number of tokens, at least 1
+     */
+    TokenBucket(double ratePerSecond, double capacity) {
+        if (ratePerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid rate or capacity.");
+        }
+        tokensPerNano = ratePerSecond / 1e9;
+        this.capacity = capacity;
+        tokens = capacity;
+        lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return true if a token was taken, and false otherwise
+     */
+    boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Take a token, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire() throws InterruptedException {
+        while (!tryAcquire()) {
+            long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens =
+            Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+}
@@ -6,56 +6,273 @@ import com.google.gson.JsonPrimitive;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.ConnectException;
 import java.net.Socket;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class UnoClient {
     private static final Gson GSON = new Gson();
+    /**
+     * Names of the moves, indexed by {@code GameAction} type.
+     */
+    private static final String[] MOVES = {"playCard", "drawCard",
+        "playDrawnCard", "callUno", "callLateUno", "challengeUno",
+        "changeColor", "challengeDrawFour"};
+    private static final CardColor[] COLORS = CardColor.values();
+    /**
+     * Number of recent events shown below the board.
+     */
+    private static final int MAX_EVENTS = 8;
+    /**
+     * Number of times to try connecting to the standby server, enough for
+     * a server to be restarted from its journal.
+     */
+    private static final int RECONNECT_ATTEMPTS = 600;
+    /**
+     * Time between attempts to connect to the standby server in
+     * milliseconds.
+     */
+    private static final long RECONNECT_DELAY = 100;
+    private static final String PING = "{\"type\":\"ping\"}";
+    private static final String PONG = "{\"move\":\"pong\"}";
+    /**
+     * Queued after the last line from the server. It cannot be a line,
+     * since it is a line break.
+     */
+    private static final String CLOSED = "\n";
 
-    private final Socket socket;
     private final BufferedReader userReader;
-    private final BufferedReader serverReader;
-    private final PrintWriter writer;
     private final String myName;
+    /**
+     * Policy choosing the moves of a headless client, or null if the moves
+     * are read from the terminal.
+     */
+    private final ClientPolicy policy;
+    /**
+     * Renderer drawing the game, or null for a headless client.
+     */
+    private final TerminalRenderer renderer;
+    /**
+     * The most recent events, oldest first.
+     */
+    private final ArrayDeque<String> events = new ArrayDeque<>();
 
+    private Socket socket;
+    /**
+     * Lines from the server other than pings. The server is read on a
+     * thread of its own, so pings are answered while the player thinks.
+     */
+    private BlockingQueue<String> serverLines;
+    private PrintWriter writer;
+    /**
+     * Host of the standby server to reconnect to if the connection is
+     * lost, or null if there is none.
+     */
+    private String standbyHost;
+    private int standbyPort;
     private int id;
+    /**
+     * Id of the table in the server's journal or on its standby, or -1 if
+     * the table cannot be resumed.
+     */
+    private long tableId = -1;
     private int numPlayers;
     private int maxNameLen;
     private String[] names;
 
     public UnoClient(String host, int port, String myName) {
+        this(host, port, myName, null);
+    }
+
+    /**
+     * Create a headless client, which prints nothing and lets a policy
+     * choose its moves, so that many can run in one JVM.
+     *
+     * @param host   the server's host
+     * @param port   the server's port
+     * @param myName the player's name
+     * @param policy the policy choosing the moves, or null to read them
+     *               from the terminal
+     */
+    UnoClient(String host, int port, String myName, ClientPolicy policy) {
         try {
-            socket = new Socket(host, port);
-            userReader = new BufferedReader(new InputStreamReader(System.in));
-            serverReader = new BufferedReader(
-                new InputStreamReader(socket.getInputStream()));
-            writer = new PrintWriter(
-                new OutputStreamWriter(socket.getOutputStream()), true);
+            connect(new Socket(host, port));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+        userReader = (policy == null)
+            ? new BufferedReader(new InputStreamReader(System.in)) : null;
         this.myName = myName;
+        this.policy = policy;
+        renderer = (policy == null)
+            ? new TerminalRenderer(System.out, System.console() != null)
+            : null;
+    }
+
+    /**
+     * Ask a {@code UnoGateway} or {@code TableHost} for a table. Must be
+     * called before {@code start()}.
+     *
+     * @param route the table to join
+     */
+    void joinTable(@NotNull TableRoute route) {
+        try {
+            route.write(socket.getOutputStream());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reconnect to a standby server if the connection to the server is
+     * lost, and rejoin the game it took over in the same seat. The standby
+     * can also be the server itself, restarted from its journal. Must be
+     * called before {@code start()}.
+     *
+     * @param host the standby's host
+     * @param port the port the standby resumes the table on
+     */
+    void setStandby(@NotNull String host, int port) {
+        standbyHost = host;
+        standbyPort = port;
     }
 
     public void start() {
+        addEvent("The game is starting.");
         try {
-            getId();
-            nameHandshake();
-            gameLoop();
-            socket.close();
+            while (true) {
+                try {
+                    getId();
+                    nameHandshake();
+                    gameLoop();
+                    socket.close();
+                    return;
+                } catch (IOException e) {
+                    if (standbyHost == null) {
+                        throw e;
+                    }
+                    failOver(e);
+                }
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void connect(@NotNull Socket socket) throws IOException {
+        this.socket = socket;
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream()));
+        PrintWriter writer = new PrintWriter(
+            new OutputStreamWriter(socket.getOutputStream()), true);
+        BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        this.writer = writer;
+        serverLines = lines;
+        Thread thread = new Thread(() -> readLines(reader, writer, lines),
+            "uno-client-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Answer pings from the server and queue its other lines until the
+     * connection is closed.
+     *
+     * @param reader the connection's reader
+     * @param writer the connection's writer
+     * @param lines  the queue for the lines
+     */
+    private static void readLines(BufferedReader reader, PrintWriter writer,
+                                  BlockingQueue<String> lines) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(PING)) {
+                    writer.println(PONG);
+                } else {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            // the connection is lost either way
+        }
+        lines.add(CLOSED);
+    }
+
+    /**
+     * Connect to the standby server, retrying while it takes over the
+     * table, and ask for this player's seat back. The client fails over at
+     * most once.
+     *
+     * @param cause the error that lost the connection
+     * @throws IOException if the table cannot be resumed or the standby
+     *                     cannot be reached
+     */
+    private void failOver(@NotNull IOException cause) throws IOException {
+        socket.close();
+        if (tableId < 0) {
+            throw cause;
+        }
+        addEvent("Lost connection to the server (" + cause.getMessage()
+            + "), reconnecting.");
+        String host = standbyHost;
+        standbyHost = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                connect(new Socket(host, standbyPort));
+                TableRoute.rejoin(tableId, id).write(socket.getOutputStream());
+                addEvent("Reconnected to the standby server.");
+                return;
+            } catch (ConnectException e) {
+                if (attempt == RECONNECT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * @return the next line from the server other than a ping
+     * @throws EOFException if the connection was closed
+     */
+    private String readServerLine() throws IOException {
+        String line;
+        try {
+            line = serverLines.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (line.equals(CLOSED)) {
+            throw new EOFException("Connection to the server closed.");
+        }
+        return line;
+    }
+
     private void getId() throws IOException {
-        String line = serverReader.readLine();
+        String line = readServerLine();
         JsonObject idJson = GSON.fromJson(line, JsonObject.class);
+        if (idJson.has("reason")) {
+            // a seat that could not be rejoined
+            throw new IOException(idJson.get("reason").getAsString());
+        }
         id = idJson.get("id").getAsInt();
+        tableId = idJson.has("table") ? idJson.get("table").getAsLong() : -1;
     }
 
     private void sendConfirmation() {
@@ -72,7 +289,7 @@ public class UnoClient {
         nameJson.add("name", new JsonPrimitive(myName));
         writer.println(nameJson);
         // get name list
-        String line = serverReader.readLine();
+        String line = readServerLine();
         JsonObject namesJson = GSON.fromJson(line, JsonObject.class);
         names =
             GSON.fromJson(namesJson.get("names").getAsString(), String[].class);
@@ -85,10 +302,13 @@ public class UnoClient {
     }
 
     private void gameLoop() throws IOException {
-        System.out.println("The game is starting.");
+        GameData data = null;
         while (true) {
-            GameData data = getGameData();
-            printGame(data);
+            data = getGameData(data);
+            if (policy == null) {
+                addEvents(data);
+                draw(data, false, null);
+            }
             sendConfirmation();
             if (data.isGameOver()) {
                 break;
@@ -96,49 +316,105 @@ public class UnoClient {
             if (data.state() != GameState.ROUND_OVER) {
                 awaitStart();
                 if ((id == data.activePlayer()) || data.canChallengeUno()) {
-                    printMoves(data);
-                    handleInput(data);
+                    if (policy == null) {
+                        draw(data, true, null);
+                        handleInput(data);
+                    } else {
+                        playPolicy(data);
+                    }
                 }
             }
         }
     }
 
-    private GameData getGameData() throws IOException {
-        String line = serverReader.readLine();
-        JsonObject json = GSON.fromJson(line, JsonObject.class);
-        return GSON.fromJson(json.get("gameData").getAsString(),
-            GameData.class);
+    private GameData getGameData(GameData prevData) throws IOException {
+        while (true) {
+            String line = readServerLine();
+            JsonObject json = GSON.fromJson(line, JsonObject.class);
+            if (json.get("type").getAsString().equals("error")) {
+                // the server rejected our move and is still waiting for one
+                if (policy != null) {
+                    throw new IllegalStateException("Move rejected: "
+                        + json.get("reason").getAsString());
+                }
+                if (prevData != null) {
+                    draw(prevData, true, json.get("reason").getAsString());
+                    handleInput(prevData);
+                }
+                continue;
+            }
+            return GameDataJson.GSON.fromJson(
+                json.get("gameData").getAsString(), GameData.class);
+        }
     }
 
-    private void printGame(GameData data) {
-        printPlayed(data);
-        printSpecial(data);
-        printDrawn(data);
+    /**
+     * Draw the game as one frame: the board, or the scores once the round
+     * is over, then the recent events, then the moves the player can make.
+     *
+     * @param data      the game data
+     * @param showMoves whether to list the player's moves
+     * @param status    a line shown at the bottom, or null for none
+     */
+    private void draw(@NotNull GameData data, boolean showMoves,
+                      String status) {
         if (data.state() == GameState.ROUND_OVER) {
             printScores(data);
-        } else if (id == data.activePlayer()) {
+        } else {
             printBoard(data);
         }
+        for (String event : events) {
+            renderer.println(event);
+        }
+        renderer.println();
+        if (showMoves) {
+            printMoves(data);
+        }
+        if (status != null) {
+            renderer.println(status);
+        }
+        renderer.render();
+    }
+
+    /**
+     * Add an event, dropping the oldest if there are too many.
+     *
+     * @param event a line describing the event
+     */
+    private void addEvent(@NotNull String event) {
+        if (events.size() == MAX_EVENTS) {
+            events.removeFirst();
+        }
+        events.addLast(event);
     }
 
-    private void printPlayed(@NotNull GameData data) {
+    /**
+     * Add the events described by new game data.
+     *
+     * @param data the game data
+     */
+    private void addEvents(@NotNull GameData data) {
+        addPlayed(data);
+        addSpecial(data);
+        addDrawn(data);
+    }
+
+    private void addPlayed(@NotNull GameData data) {
         GameMove lastMove = data.lastMove();
         Card topCard = data.topCard();
         int lastPlayed = data.lastPlayed();
         switch (lastMove) {
         case PLAY_CARD, DRAW_TWO, SKIP, REVERSE -> {
             if (id == lastPlayed) {
-                System.out.println("You played a " + topCard + ".");
+                addEvent("You played a " + topCard + ".");
             } else if (lastPlayed != -1) {
-                System.out.println(
-                    names[lastPlayed] + " played a " + topCard + ".");
+                addEvent(names[lastPlayed] + " played a " + topCard + ".");
             }
-            System.out.println();
         }
         }
     }
 
-    private void printSpecial(@NotNull GameData data) {
+    private void addSpecial(@NotNull GameData data) {
         GameMove lastMove = data.lastMove();
         CardColor wildColor = data.wildColor();
         Direction direction = data.direction();
@@ -147,51 +423,42 @@ public class UnoClient {
         switch (lastMove) {
         case SKIP -> {
             if (id == lastAttacked) {
-                System.out.println("You were skipped.");
+                addEvent("You were skipped.");
             } else {
-                System.out.println(names[lastAttacked] + " was skipped.");
+                addEvent(names[lastAttacked] + " was skipped.");
             }
         }
-        case REVERSE -> System.out.println(
+        case REVERSE -> addEvent(
             "The play direction is now " + direction + ".");
-        case CHANGE_COLOR -> System.out.println(
+        case CHANGE_COLOR -> addEvent(
             "The color has been changed to " + wildColor + ".");
         case DRAW_FOUR_CHALLENGE_FAIL, DRAW_FOUR_CHALLENGE_SUCCESS -> {
             String lastAttackedName =
                 (id == lastAttacked) ? "You" : names[lastAttacked];
             String lastPlayedName =
                 (id == lastPlayed) ? "your" : names[lastPlayed] + "'s";
-            System.out.print(lastAttackedName + " challenged " + lastPlayedName
-                + " draw four. ");
-            switch (lastMove) {
-            case DRAW_FOUR_CHALLENGE_FAIL -> System.out.println(
-                "Challenge failed!");
-            case DRAW_FOUR_CHALLENGE_SUCCESS -> System.out.println(
-                "Challenge successful!");
-            }
+            String outcome = (lastMove == GameMove.DRAW_FOUR_CHALLENGE_FAIL)
+                ? "Challenge failed!" : "Challenge successful!";
+            addEvent(lastAttackedName + " challenged " + lastPlayedName
+                + " draw four. " + outcome);
         }
         case CALL_UNO -> {
             String lastPlayedName =
                 (id == lastPlayed) ? "You" : names[lastPlayed];
-            System.out.println(lastPlayedName + " called Uno.");
+            addEvent(lastPlayedName + " called Uno.");
         }
         case CHALLENGE_UNO -> {
             String lastPlayedName =
                 (id == lastPlayed) ? "You" : names[lastPlayed];
             String lastAttackedName =
                 (id == lastAttacked) ? "you" : names[lastAttacked];
-            System.out.println(
-                lastPlayedName + " challenged " + lastAttackedName
-                    + " for not calling Uno!");
-        }
-        default -> {
-            return;
+            addEvent(lastPlayedName + " challenged " + lastAttackedName
+                + " for not calling Uno!");
         }
         }
-        System.out.println();
     }
 
-    private void printDrawn(@NotNull GameData data) {
+    private void addDrawn(@NotNull GameData data) {
         GameMove lastMove = data.lastMove();
         int lastPlayed = data.lastPlayed();
         int lastAttacked = data.lastAttacked();
@@ -205,16 +472,13 @@ public class UnoClient {
             default -> drew = lastAttacked;
             }
             if (id == drew) {
-                for (Card card : lastDrawnCards) {
-                    System.out.println("You drew a " + card + ".");
-                }
+                addEvent("You drew " + join(lastDrawnCards) + ".");
             } else {
                 int numCards = lastDrawnCards.length;
                 String plural = (numCards == 1) ? "" : "s";
-                System.out.println(
+                addEvent(
                     names[drew] + " drew " + numCards + " card" + plural + ".");
             }
-            System.out.println();
         }
         }
     }
@@ -226,15 +490,16 @@ public class UnoClient {
             String name = names[otherId];
             int numCards = hands[otherId].length;
             String plural = (numCards == 1) ? "" : "s";
-            System.out.println(name + ": " + numCards + " card" + plural);
-        }
-        String cardsString = Arrays.toString(hands[id]);
-        System.out.println("Your cards: " + cardsString.substring(1,
-            cardsString.length() - 1));
-        System.out.println();
-        System.out.println("Top card: " + data.topCard());
-        System.out.println("Direction: " + data.direction());
-        System.out.println();
+            renderer.println(name + ": " + numCards + " card" + plural);
+        }
+        renderer.println("Your cards: " + join(hands[id]));
+        renderer.println();
+        renderer.println("Top card: " + data.topCard());
+        renderer.println("Direction: " + data.direction());
+        int activePlayer = data.activePlayer();
+        renderer.println("Turn: "
+            + ((id == activePlayer) ? "You" : names[activePlayer]));
+        renderer.println();
     }
 
     private void printScores(@NotNull GameData data) {
@@ -243,208 +508,214 @@ public class UnoClient {
         boolean isGameOver = data.isGameOver();
         if (id == lastPlayed) {
             if (isGameOver) {
-                System.out.println("You win the game!");
+                renderer.println("You win the game!");
             } else {
-                System.out.println("You win the round.");
+                renderer.println("You win the round.");
             }
         } else {
             String winner = names[data.lastPlayed()];
             if (data.isGameOver()) {
-                System.out.println(winner + " wins the game!");
+                renderer.println(winner + " wins the game!");
             } else {
-                System.out.println(winner + " wins this round.");
+                renderer.println(winner + " wins this round.");
             }
         }
-        for (int i = 0; i < maxNameLen; i++) {
-            System.out.print(" ");
-        }
-        System.out.println("     Prev Contrib   Added    Curr");
+        renderer.println(" ".repeat(maxNameLen)
+            + "     Prev Contrib   Added    Curr");
         for (int i = 0; i < numPlayers; i++) {
             String name = names[i];
-            for (int j = name.length(); j < maxNameLen; j++) {
-                System.out.print(" ");
-            }
-            System.out.printf("%s:%8d%8d%8d%8d\n", name, scores[i][0],
-                scores[i][1], scores[i][2], scores[i][3]);
+            renderer.println(String.format("%s%s:%8d%8d%8d%8d",
+                " ".repeat(maxNameLen - name.length()), name, scores[i][0],
+                scores[i][1], scores[i][2], scores[i][3]));
         }
-        System.out.println();
+        renderer.println();
         if (!data.isGameOver()) {
-            System.out.println("The next round is starting.");
+            renderer.println("The next round is starting.");
+            renderer.println();
         }
     }
 
+    /**
+     * @param cards some cards
+     * @return the cards separated by commas, like a list without brackets
+     */
+    private static String join(@NotNull Card[] cards) {
+        String string = Arrays.toString(cards);
+        return string.substring(1, string.length() - 1);
+    }
+
     private void awaitStart() throws IOException {
         String line;
         JsonObject json;
         do {
-            line = serverReader.readLine();
+            line = readServerLine();
             json = GSON.fromJson(line, JsonObject.class);
         } while (!json.get("type").getAsString().equals("start"));
     }
 
+    /**
+     * Send the move the policy chooses, if any.
+     *
+     * @param data the game data
+     * @throws IllegalStateException if the policy chooses an illegal move
+     */
+    private void playPolicy(@NotNull GameData data) {
+        int action = policy.chooseAction(data, id);
+        if (action == -1) {
+            return;
+        }
+        MoveResult result = data.validate(id, action);
+        if (result != MoveResult.OK) {
+            throw new IllegalStateException("Policy chose "
+                + GameAction.toString(action) + ": " + result);
+        }
+        writer.println(moveJson(action));
+    }
+
+    /**
+     * @param action an action, encoded as described in {@code GameAction}
+     * @return the message making the move
+     */
+    private JsonObject moveJson(int action) {
+        int type = GameAction.type(action);
+        int arg = GameAction.arg(action);
+        JsonObject moveJson = new JsonObject();
+        moveJson.add("id", new JsonPrimitive(id));
+        moveJson.add("move", new JsonPrimitive(MOVES[type]));
+        switch (type) {
+        case GameAction.PLAY_CARD -> moveJson.add("index",
+            new JsonPrimitive(arg));
+        case GameAction.PLAY_DRAWN_CARD -> moveJson.add("play",
+            new JsonPrimitive(arg != 0));
+        case GameAction.CHANGE_COLOR -> moveJson.add("color",
+            new JsonPrimitive(COLORS[arg].name()));
+        case GameAction.CHALLENGE_DRAW_FOUR -> moveJson.add("challenge",
+            new JsonPrimitive(arg != 0));
+        }
+        return moveJson;
+    }
+
     private void printMoves(@NotNull GameData data) {
         GameState state = data.state();
-        GameMove lastMove = data.lastMove();
         boolean canCallUno = data.canCallUno();
         boolean canChallengeUno = data.canChallengeUno();
         int activePlayer = data.activePlayer();
         int lastPlayed = data.lastPlayed();
         Card[] playableCards = data.playableCards();
+        boolean calledUno = data.calledUno();
         if (id == activePlayer) {
             switch (state) {
             case PLAY_CARD -> {
                 for (int i = 0; i < playableCards.length; i++) {
-                    System.out.printf("%3d - Play %s.\n", i + 1,
-                        playableCards[i]);
+                    renderer.println(String.format("%3d - Play %s.", i + 1,
+                        playableCards[i]));
                 }
-                if (lastMove != GameMove.CALL_UNO) {
-                    System.out.println("  d - Draw a card.");
+                if (!calledUno) {
+                    renderer.println("  d - Draw a card.");
                 }
             }
             case PLAY_DRAWN_CARD -> {
                 Card lastDrawn = data.lastDrawnCards()[0];
-                System.out.println("  p - Play " + lastDrawn + ".");
-                if (lastMove != GameMove.CALL_UNO) {
-                    System.out.println("  k - Keep " + lastDrawn + ".");
+                renderer.println("  p - Play " + lastDrawn + ".");
+                if (!calledUno) {
+                    renderer.println("  k - Keep " + lastDrawn + ".");
                 }
             }
             case CHANGE_COLOR -> {
-                System.out.println("Choose a new color:");
-                System.out.println("  b - Blue");
-                System.out.println("  g - Green");
-                System.out.println("  y - Yellow");
-                System.out.println("  r - Red");
+                renderer.println("Choose a new color:");
+                renderer.println("  b - Blue");
+                renderer.println("  g - Green");
+                renderer.println("  y - Yellow");
+                renderer.println("  r - Red");
             }
             case CHALLENGE_DRAW_FOUR -> {
-                System.out.println("Challenge draw four?");
-                System.out.println("  y - Yes");
-                System.out.println("  n - No");
+                renderer.println("Challenge draw four?");
+                renderer.println("  y - Yes");
+                renderer.println("  n - No");
             }
             }
             if (canCallUno) {
-                System.out.println("  u - Call Uno.");
+                renderer.println("  u - Call Uno.");
             }
         }
         if (canChallengeUno) {
             if (id == lastPlayed) {
-                System.out.println("  u - Call Uno (late).");
+                renderer.println("  u - Call Uno (late).");
             } else {
-                System.out.println("  c - Challenge Uno.");
+                renderer.println("  c - Challenge Uno.");
             }
         }
-        System.out.println();
+        renderer.println();
     }
 
+    /**
+     * Read moves from the terminal until one is legal and send it. Input
+     * is checked against the game data by the same rules as the server, so
+     * an illegal move is rejected without a round trip. Returns without
+     * sending a move if the server sends something first.
+     *
+     * @param data the game data
+     */
     private void handleInput(@NotNull GameData data) throws IOException {
-        GameState state = data.state();
-        GameMove lastMove = data.lastMove();
-        boolean canCallUno = data.canCallUno();
-        boolean canChallengeUno = data.canChallengeUno();
-        int activePlayer = data.activePlayer();
-        int lastPlayed = data.lastPlayed();
-        Card[] playableCards = data.playableCards();
-        JsonObject moveJson = new JsonObject();
-        moveJson.add("id", new JsonPrimitive(id));
-        inputLoop:
         while (true) {
-            while (!userReader.ready() && !serverReader.ready()) {
+            while (!userReader.ready() && serverLines.isEmpty()) {
                 Thread.onSpinWait();
             }
-            if (serverReader.ready()) {
+            if (!serverLines.isEmpty()) {
                 return;
             }
-            String input = userReader.readLine();
-            if (canCallUno && input.equals("u")) {
-                moveJson.add("move", new JsonPrimitive("callUno"));
-                break;
+            int action = parseInput(data, userReader.readLine());
+            if (action == -1) {
+                draw(data, true, "Invalid input, try again.");
+                continue;
             }
-            if (canChallengeUno) {
-                if (id == lastPlayed) {
-                    if (input.equals("u")) {
-                        moveJson.add("move", new JsonPrimitive("callLateUno"));
-                        break;
-                    }
-                } else {
-                    if (input.equals("c")) {
-                        moveJson.add("move", new JsonPrimitive("challengeUno"));
-                        break;
-                    }
-                }
+            MoveResult result = data.validate(id, action);
+            if (result == MoveResult.OK) {
+                writer.println(moveJson(action));
+                return;
             }
-            if (id == activePlayer) {
-                switch (state) {
-                case PLAY_CARD -> {
-                    if (input.equals("d")) {
-                        if (lastMove != GameMove.CALL_UNO) {
-                            moveJson.add("move", new JsonPrimitive("drawCard"));
-                            break inputLoop;
-                        }
-                    } else {
-                        try {
-                            int index = Integer.parseInt(input) - 1;
-                            if (index >= 0 && index < playableCards.length) {
-                                moveJson.add("move",
-                                    new JsonPrimitive("playCard"));
-                                moveJson.add("index", new JsonPrimitive(index));
-                                break inputLoop;
-                            }
-                        } catch (NumberFormatException e) {
-                            /* fall through */
-                        }
-                    }
-                }
-                case PLAY_DRAWN_CARD -> {
-                    switch (input) {
-                    case "p" -> {
-                        moveJson.add("move",
-                            new JsonPrimitive("playDrawnCard"));
-                        moveJson.add("play", new JsonPrimitive(true));
-                        break inputLoop;
-                    }
-                    case "k" -> {
-                        if (lastMove != GameMove.CALL_UNO) {
-                            moveJson.add("move",
-                                new JsonPrimitive("playDrawnCard"));
-                            moveJson.add("play", new JsonPrimitive(false));
-                            break inputLoop;
-                        }
-                    }
-                    }
-                }
-                case CHANGE_COLOR -> {
-                    switch (input) {
-                    case "b", "g", "r", "y" -> {
-                        moveJson.add("move", new JsonPrimitive("changeColor"));
-                        switch (input) {
-                        case "b" -> moveJson.add("color",
-                            new JsonPrimitive(GSON.toJson(CardColor.BLUE)));
-                        case "g" -> moveJson.add("color",
-                            new JsonPrimitive(GSON.toJson(CardColor.GREEN)));
-                        case "r" -> moveJson.add("color",
-                            new JsonPrimitive(GSON.toJson(CardColor.RED)));
-                        case "y" -> moveJson.add("color",
-                            new JsonPrimitive(GSON.toJson(CardColor.YELLOW)));
-                        }
-                        break inputLoop;
-                    }
-                    }
-                }
-                case CHALLENGE_DRAW_FOUR -> {
-                    switch (input) {
-                    case "y", "n" -> {
-                        moveJson.add("move",
-                            new JsonPrimitive("challengeDrawFour"));
-                        boolean challenge = input.equals("y");
-                        moveJson.add("challenge", new JsonPrimitive(challenge));
-                        break inputLoop;
-                    }
-                    }
-                }
+            draw(data, true, result + " Try again.");
+        }
+    }
+
+    /**
+     * @param data  the game data
+     * @param input a line typed by the player
+     * @return the action the input stands for, encoded as described in
+     * {@code GameAction}, which may not be legal, or -1 if it stands for
+     * none
+     */
+    private int parseInput(@NotNull GameData data, @NotNull String input) {
+        GameState state = data.state();
+        return switch (input) {
+            case "u" -> (!data.canCallUno() && data.canChallengeUno()
+                && id == data.lastPlayed())
+                ? GameAction.of(GameAction.CALL_LATE_UNO)
+                : GameAction.of(GameAction.CALL_UNO);
+            case "c" -> GameAction.of(GameAction.CHALLENGE_UNO, id);
+            case "d" -> GameAction.of(GameAction.DRAW_CARD);
+            case "p", "k" ->
+                GameAction.of(GameAction.PLAY_DRAWN_CARD, input.equals("p"));
+            case "n" -> GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, false);
+            case "y" -> (state == GameState.CHALLENGE_DRAW_FOUR)
+                ? GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, true)
+                : changeColor(CardColor.YELLOW);
+            case "b" -> changeColor(CardColor.BLUE);
+            case "g" -> changeColor(CardColor.GREEN);
+            case "r" -> changeColor(CardColor.RED);
+            default -> {
+                try {
+                    int index = Integer.parseInt(input) - 1;
+                    yield (index >= 0 && index < GameAction.MAX_ACTIONS)
+                        ? GameAction.of(GameAction.PLAY_CARD, index) : -1;
+                } catch (NumberFormatException e) {
+                    yield -1;
                 }
             }
-            System.out.println("Invalid input, try again.");
-        }
-        writer.println(moveJson);
-        System.out.println();
+        };
+    }
+
+    private static int changeColor(@NotNull CardColor color) {
+        return GameAction.of(GameAction.CHANGE_COLOR, color.ordinal());
     }
 }
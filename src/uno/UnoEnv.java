@@ -0,0 +1,381 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A reinforcement learning environment that steps a batch of independent
+ * games at once. Each game is a round played by self-play: the agent acting
+ * in a game is always its active player. Observations, legal action masks,
+ * rewards and done flags are written into caller-supplied buffers with
+ * absolute puts, so direct buffers shared with a trainer are filled in place
+ * and stepping creates no objects per game.
+ *
+ * <p>Missed Uno calls are challenged automatically, as in
+ * {@code Game.challengeMissedUno()}, so agents only ever choose among the
+ * active player's moves.
+ */
+class UnoEnv {
+    /*
+     * Observation layout, per game:
+     * - number of cards of each face in the agent's hand
+     * - one-hot face of the top card
+     * - one-hot wild color, if the top card is wild
+     * - hand sizes of the other players, in play order starting with the
+     *   next player, padded to MAX_PLAYERS - 1
+     * - 1 if the direction is clockwise, and 0 otherwise
+     * - one-hot game state
+     * - 1 if the agent can call Uno, and 0 otherwise
+     */
+    private static final int HAND_OFFSET = 0;
+    private static final int TOP_CARD_OFFSET = HAND_OFFSET + Card.NUM_FACES;
+    private static final int WILD_COLOR_OFFSET =
+        TOP_CARD_OFFSET + Card.NUM_FACES;
+    private static final int OPPONENTS_OFFSET =
+        WILD_COLOR_OFFSET + CardColor.NONE.ordinal();
+    private static final int DIRECTION_OFFSET =
+        OPPONENTS_OFFSET + Game.MAX_PLAYERS - 1;
+    private static final int STATE_OFFSET = DIRECTION_OFFSET + 1;
+    private static final int CAN_CALL_UNO_OFFSET =
+        STATE_OFFSET + GameState.values().length;
+
+    /**
+     * Number of floats in the observation of one game.
+     */
+    static final int OBSERVATION_SIZE = CAN_CALL_UNO_OFFSET + 1;
+
+    /*
+     * Action layout: play a card of each face, draw, keep the drawn card,
+     * play the drawn card, call Uno, change to each color, accept a draw
+     * four, challenge a draw four.
+     */
+    private static final int DRAW_ACTION = Card.NUM_FACES;
+    private static final int KEEP_ACTION = DRAW_ACTION + 1;
+    private static final int PLAY_DRAWN_ACTION = KEEP_ACTION + 1;
+    private static final int CALL_UNO_ACTION = PLAY_DRAWN_ACTION + 1;
+    private static final int CHANGE_COLOR_ACTION = CALL_UNO_ACTION + 1;
+    private static final int ACCEPT_DRAW_FOUR_ACTION =
+        CHANGE_COLOR_ACTION + CardColor.NONE.ordinal();
+    private static final int CHALLENGE_DRAW_FOUR_ACTION =
+        ACCEPT_DRAW_FOUR_ACTION + 1;
+
+    /**
+     * Number of actions in the action space, which is also the number of
+     * bytes in the legal action mask of one game.
+     */
+    static final int NUM_ACTIONS = CHALLENGE_DRAW_FOUR_ACTION + 1;
+
+    /**
+     * Number of moves after which a round is ended without a winner.
+     */
+    static final int MAX_EPISODE_STEPS = 2000;
+
+    /**
+     * Number of games in the batch.
+     */
+    final int numEnvs;
+    /**
+     * Number of players in each game.
+     */
+    final int numPlayers;
+
+    private final Game[] games;
+    private final int[][] legalActions;
+    private final int[] episodeSteps;
+    private final boolean parallel;
+
+    /**
+     * Create a new batch of games.
+     *
+     * @param numEnvs    number of games, positive
+     * @param numPlayers number of players in each game
+     * @param seed       seed for dealing; game {@code i} uses
+     *                   {@code seed + i}
+     * @param parallel   whether to step the games on the common fork-join
+     *                   pool
+     */
+    UnoEnv(int numEnvs, int numPlayers, long seed, boolean parallel) {
+        if (numEnvs <= 0) {
+            throw new IllegalArgumentException("Invalid number of games.");
+        }
+        this.numEnvs = numEnvs;
+        this.numPlayers = numPlayers;
+        this.parallel = parallel;
+        games = new Game[numEnvs];
+        legalActions = new int[numEnvs][GameAction.MAX_ACTIONS];
+        episodeSteps = new int[numEnvs];
+        for (int i = 0; i < numEnvs; i++) {
+            games[i] = new Game(numPlayers, new Random(seed + i));
+        }
+    }
+
+    /**
+     * @param numEnvs number of games
+     * @return a direct buffer in native order large enough for the
+     * observations of {@code numEnvs} games
+     */
+    static FloatBuffer allocateObservations(int numEnvs) {
+        return allocateFloats(numEnvs * OBSERVATION_SIZE);
+    }
+
+    /**
+     * @param numEnvs number of games
+     * @return a direct buffer large enough for the legal action masks of
+     * {@code numEnvs} games
+     */
+    static ByteBuffer allocateMasks(int numEnvs) {
+        return ByteBuffer.allocateDirect(numEnvs * NUM_ACTIONS);
+    }
+
+    /**
+     * @param size number of floats
+     * @return a direct float buffer in native order
+     */
+    static FloatBuffer allocateFloats(int size) {
+        return ByteBuffer.allocateDirect(size * Float.BYTES)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * Start a new round in every game.
+     *
+     * @param observations buffer for {@code numEnvs * OBSERVATION_SIZE}
+     *                     floats
+     * @param masks        buffer for {@code numEnvs * NUM_ACTIONS} bytes
+     */
+    void reset(@NotNull FloatBuffer observations, @NotNull ByteBuffer masks) {
+        forEachEnv(i -> {
+            startRound(i);
+            writeObservation(i, observations);
+            writeMask(i, masks);
+        });
+    }
+
+    /**
+     * Apply one action in every game. Games whose round ended are restarted,
+     * and the observation written for them is the first one of the new
+     * round.
+     *
+     * @param actions      the action of the agent in each game, which must be
+     *                     legal according to the last mask
+     * @param observations buffer for {@code numEnvs * OBSERVATION_SIZE}
+     *                     floats
+     * @param masks        buffer for {@code numEnvs * NUM_ACTIONS} bytes
+     * @param rewards      buffer for {@code numEnvs * numPlayers} floats,
+     *                     receiving the reward of each player of each game:
+     *                     1 for the winner and {@code -1 / (numPlayers - 1)}
+     *                     for the others when a round is won, and 0 otherwise
+     * @param dones        buffer for {@code numEnvs} bytes, receiving 1 for
+     *                     each game whose round ended and 0 otherwise
+     * @throws IllegalArgumentException if an action is not legal
+     */
+    void step(@NotNull IntBuffer actions, @NotNull FloatBuffer observations,
+              @NotNull ByteBuffer masks, @NotNull FloatBuffer rewards,
+              @NotNull ByteBuffer dones) {
+        forEachEnv(i -> {
+            Game game = games[i];
+            int player = game.getActivePlayer();
+            int action = toGameAction(game, actions.get(i));
+            if (action == -1
+                || game.tryApply(player, action) != MoveResult.OK) {
+                throw new IllegalArgumentException(
+                    "Illegal action " + actions.get(i) + " in game " + i);
+            }
+            game.challengeMissedUno();
+            int base = i * numPlayers;
+            for (int j = 0; j < numPlayers; j++) {
+                rewards.put(base + j, 0);
+            }
+            boolean done = false;
+            if (game.getState() == GameState.ROUND_OVER) {
+                float loss = -1f / (numPlayers - 1);
+                for (int j = 0; j < numPlayers; j++) {
+                    rewards.put(base + j, loss);
+                }
+                rewards.put(base + game.getLastPlayed(), 1);
+                done = true;
+            } else if (++episodeSteps[i] >= MAX_EPISODE_STEPS) {
+                done = true;
+            }
+            dones.put(i, (byte) (done ? 1 : 0));
+            if (done) {
+                startRound(i);
+            }
+            writeObservation(i, observations);
+            writeMask(i, masks);
+        });
+    }
+
+    /**
+     * @param env index of a game
+     * @return the index of the player who acts next in the game
+     */
+    int getPlayer(int env) {
+        return games[env].getActivePlayer();
+    }
+
+    /**
+     * @param env index of a game
+     * @return the game, which must not be modified
+     */
+    Game getGame(int env) {
+        return games[env];
+    }
+
+    /**
+     * Run an operation for every game, in parallel if configured.
+     *
+     * @param operation operation taking the index of a game
+     */
+    private void forEachEnv(IntConsumer operation) {
+        IntStream range = IntStream.range(0, numEnvs);
+        if (parallel) {
+            range = range.parallel();
+        }
+        range.forEach(operation);
+    }
+
+    /**
+     * Start a new round in a game, discarding the previous one.
+     *
+     * @param env index of the game
+     */
+    private void startRound(int env) {
+        Game game = games[env];
+        if (game.getState() == GameState.ROUND_OVER) {
+            game.resetGame();
+        } else if (game.getState() != GameState.ROUND_START) {
+            // rounds cut off at MAX_EPISODE_STEPS are not scored
+            game.abandonRound();
+        }
+        game.startRound();
+        game.challengeMissedUno();
+        episodeSteps[env] = 0;
+    }
+
+    /**
+     * Write the observation of the active player of a game.
+     *
+     * @param env          index of the game
+     * @param observations buffer to write to
+     */
+    private void writeObservation(int env, FloatBuffer observations) {
+        Game game = games[env];
+        int base = env * OBSERVATION_SIZE;
+        for (int i = 0; i < OBSERVATION_SIZE; i++) {
+            observations.put(base + i, 0);
+        }
+        int player = game.getActivePlayer();
+        for (int face = 0; face < Card.NUM_FACES; face++) {
+            observations.put(base + HAND_OFFSET + face,
+                game.countFace(player, face));
+        }
+        Card topCard = game.getTopCard();
+        observations.put(base + TOP_CARD_OFFSET + topCard.face(), 1);
+        if (topCard.color() == CardColor.NONE
+            && game.getWildColor() != CardColor.NONE) {
+            observations.put(base + WILD_COLOR_OFFSET
+                + game.getWildColor().ordinal(), 1);
+        }
+        int step = (game.getDirection() == Direction.CW) ? 1 : -1;
+        for (int i = 1; i < numPlayers; i++) {
+            int other = Math.floorMod(player + i * step, numPlayers);
+            observations.put(base + OPPONENTS_OFFSET + i - 1,
+                game.getHandSize(other));
+        }
+        if (game.getDirection() == Direction.CW) {
+            observations.put(base + DIRECTION_OFFSET, 1);
+        }
+        observations.put(base + STATE_OFFSET + game.getState().ordinal(), 1);
+        if (game.canCallUno()) {
+            observations.put(base + CAN_CALL_UNO_OFFSET, 1);
+        }
+    }
+
+    /**
+     * Write the legal action mask of the active player of a game.
+     *
+     * @param env   index of the game
+     * @param masks buffer to write to
+     */
+    private void writeMask(int env, ByteBuffer masks) {
+        Game game = games[env];
+        int base = env * NUM_ACTIONS;
+        for (int i = 0; i < NUM_ACTIONS; i++) {
+            masks.put(base + i, (byte) 0);
+        }
+        int[] actions = legalActions[env];
+        int numActions = game.getLegalActions(game.getActivePlayer(), actions);
+        for (int i = 0; i < numActions; i++) {
+            int action = fromGameAction(game, actions[i]);
+            if (action != -1) {
+                masks.put(base + action, (byte) 1);
+            }
+        }
+    }
+
+    /**
+     * @param game   a game
+     * @param action an action of the active player, encoded as described in
+     *               {@code GameAction}
+     * @return the index of the action in the action space, or -1 if it has
+     * none
+     */
+    private static int fromGameAction(Game game, int action) {
+        int arg = GameAction.arg(action);
+        return switch (GameAction.type(action)) {
+            case GameAction.PLAY_CARD -> game.getPlayableCard(arg).face();
+            case GameAction.DRAW_CARD -> DRAW_ACTION;
+            case GameAction.PLAY_DRAWN_CARD ->
+                (arg != 0) ? PLAY_DRAWN_ACTION : KEEP_ACTION;
+            case GameAction.CALL_UNO -> CALL_UNO_ACTION;
+            case GameAction.CHANGE_COLOR -> CHANGE_COLOR_ACTION + arg;
+            case GameAction.CHALLENGE_DRAW_FOUR -> (arg != 0)
+                ? CHALLENGE_DRAW_FOUR_ACTION : ACCEPT_DRAW_FOUR_ACTION;
+            default -> -1;
+        };
+    }
+
+    /**
+     * @param game   a game
+     * @param action index of an action in the action space
+     * @return the action encoded as described in {@code GameAction}, or -1
+     * if there is no such action
+     */
+    private static int toGameAction(Game game, int action) {
+        if (action >= 0 && action < Card.NUM_FACES) {
+            for (int i = 0; i < game.getNumPlayableCards(); i++) {
+                if (game.getPlayableCard(i).face() == action) {
+                    return GameAction.of(GameAction.PLAY_CARD, i);
+                }
+            }
+            return -1;
+        }
+        if (action >= CHANGE_COLOR_ACTION
+            && action < ACCEPT_DRAW_FOUR_ACTION) {
+            return GameAction.of(GameAction.CHANGE_COLOR,
+                action - CHANGE_COLOR_ACTION);
+        }
+        if (action == DRAW_ACTION) {
+            return GameAction.of(GameAction.DRAW_CARD);
+        } else if (action == KEEP_ACTION) {
+            return GameAction.of(GameAction.PLAY_DRAWN_CARD, false);
+        } else if (action == PLAY_DRAWN_ACTION) {
+            return GameAction.of(GameAction.PLAY_DRAWN_CARD, true);
+        } else if (action == CALL_UNO_ACTION) {
+            return GameAction.of(GameAction.CALL_UNO);
+        } else if (action == ACCEPT_DRAW_FOUR_ACTION) {
+            return GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, false);
+        } else if (action == CHALLENGE_DRAW_FOUR_ACTION) {
+            return GameAction.of(GameAction.CHALLENGE_DRAW_FOUR, true);
+        }
+        return -1;
+    }
+}
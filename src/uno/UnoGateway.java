@@ -0,0 +1,278 @@
+package uno;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Gateway routing clients to several {@code TableHost} backends. A client
+ * sends a {@code TableRoute} line first; the gateway picks the backend of
+ * the table by consistent hashing of the table id, passes the route line
+ * on, and from then on copies bytes both ways without reading them.
+ *
+ * <p>A table stays on the backend it was first routed to while any of its
+ * connections is open, so adding or draining a backend only moves tables
+ * that have not started yet. A draining backend gets no new tables and can
+ * be stopped once its last table is over.
+ */
+class UnoGateway {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads;
+    /**
+     * Backends that take new tables, guarded by {@code this}.
+     */
+    private final HashRing ring;
+    /**
+     * State of each backend, by address, guarded by {@code this}.
+     */
+    private final Map<String, Backend> backends;
+    /**
+     * Backend of each table with open connections, by table id, guarded by
+     * {@code this}.
+     */
+    private final Map<String, Pin> pins;
+
+    /**
+     * Create a gateway with no backends.
+     *
+     * @param port port to listen on
+     * @throws IOException if the port cannot be listened on
+     */
+    UnoGateway(int port) throws IOException {
+        serverSocket = new ServerSocket(port);
+        threads = Executors.newCachedThreadPool();
+        ring = new HashRing();
+        backends = new LinkedHashMap<>();
+        pins = new HashMap<>();
+    }
+
+    /**
+     * Add a backend, or stop draining it. New tables that hash to it are
+     * routed to it from now on.
+     *
+     * @param address address of the backend, as host:port
+     */
+    synchronized void addBackend(@NotNull String address) {
+        parseAddress(address);
+        Backend backend = backends.get(address);
+        if (backend == null) {
+            backends.put(address, new Backend());
+        } else if (!backend.draining) {
+            return;
+        }
+        backends.get(address).draining = false;
+        ring.add(address);
+    }
+
+    /**
+     * Stop routing new tables to a backend. The backend is forgotten once
+     * its last table is over.
+     *
+     * @param address address of the backend, as host:port
+     * @return true if the backend has no tables left, and false otherwise
+     */
+    synchronized boolean drainBackend(@NotNull String address) {
+        Backend backend = backends.get(address);
+        if (backend == null) {
+            return true;
+        }
+        if (!backend.draining) {
+            backend.draining = true;
+            ring.remove(address);
+        }
+        if (backend.numTables == 0) {
+            backends.remove(address);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a description of each backend: its address, the number of
+     * tables routed to it that still have connections, and whether it is
+     * draining
+     */
+    synchronized String describeBackends() {
+        StringBuilder builder = new StringBuilder();
+        backends.forEach((address, backend) -> builder.append(address)
+            .append(": ").append(backend.numTables).append(" tables")
+            .append(backend.draining ? ", draining" : "").append('\n'));
+        return builder.toString();
+    }
+
+    /**
+     * Accept connections until the server socket is closed.
+     */
+    void start() {
+        try {
+            while (true) {
+                Socket client = serverSocket.accept();
+                threads.execute(() -> route(client));
+            }
+        } catch (IOException e) {
+            // the server socket was closed
+        }
+    }
+
+    /**
+     * Stop accepting connections. Open connections are not closed.
+     *
+     * @throws IOException if the server socket cannot be closed
+     */
+    void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    /**
+     * Route a client to its table's backend and forward its traffic until
+     * either side closes the connection.
+     *
+     * @param client the client connection
+     */
+    private void route(Socket client) {
+        TableRoute route;
+        String address;
+        try {
+            route = TableRoute.read(client.getInputStream());
+        } catch (IOException e) {
+            closeQuietly(client);
+            return;
+        }
+        synchronized (this) {
+            Pin pin = pins.get(route.table());
+            if (pin == null) {
+                address = ring.get(route.table());
+                if (address == null) {
+                    closeQuietly(client);
+                    return;
+                }
+                pin = new Pin(address);
+                pins.put(route.table(), pin);
+                backends.get(address).numTables++;
+            }
+            pin.numConnections++;
+            address = pin.address;
+        }
+        Socket backend = null;
+        try {
+            String[] hostPort = parseAddress(address);
+            backend = new Socket(hostPort[0], Integer.parseInt(hostPort[1]));
+            backend.setTcpNoDelay(true);
+            client.setTcpNoDelay(true);
+            route.write(backend.getOutputStream());
+            Socket server = backend;
+            threads.execute(() -> pump(server, client));
+            pump(client, backend);
+        } catch (IOException e) {
+            closeQuietly(client);
+            if (backend != null) {
+                closeQuietly(backend);
+            }
+            unpin(route.table());
+            return;
+        }
+        unpin(route.table());
+    }
+
+    /**
+     * Copy bytes from one connection to another until the first one ends,
+     * then end the second one too.
+     *
+     * @param from connection to read from
+     * @param to   connection to write to
+     */
+    private static void pump(Socket from, Socket to) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try {
+            InputStream in = from.getInputStream();
+            OutputStream out = to.getOutputStream();
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // either side closed the connection
+        }
+        closeQuietly(from);
+        closeQuietly(to);
+    }
+
+    /**
+     * Release a connection's hold on its table's backend.
+     *
+     * @param table id of the table
+     */
+    private synchronized void unpin(String table) {
+        Pin pin = pins.get(table);
+        if (--pin.numConnections == 0) {
+            pins.remove(table);
+            Backend backend = backends.get(pin.address);
+            if (--backend.numTables == 0 && backend.draining) {
+                backends.remove(pin.address);
+                System.out.println("Backend " + pin.address + " drained.");
+            }
+        }
+    }
+
+    /**
+     * @param address an address, as host:port
+     * @return the host and the port
+     * @throws IllegalArgumentException if the address is not host:port
+     */
+    private static String[] parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        String port = address.substring(colon + 1);
+        if (colon <= 0 || port.isEmpty() || port.length() > 5
+            || !port.chars().allMatch(Character::isDigit)
+            || Integer.parseInt(port) > 65535) {
+            throw new IllegalArgumentException("Invalid address.");
+        }
+        return new String[]{address.substring(0, colon), port};
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to do with the connection
+        }
+    }
+
+    /**
+     * State of a backend.
+     */
+    private static class Backend {
+        /**
+         * Number of tables with open connections routed to the backend.
+         */
+        private int numTables;
+        /**
+         * Whether the backend gets no new tables.
+         */
+        private boolean draining;
+    }
+
+    /**
+     * The backend a table is routed to while it has open connections.
+     */
+    private static class Pin {
+        private final String address;
+        private int numConnections;
+
+        Pin(String address) {
+            this.address = address;
+        }
+    }
+}
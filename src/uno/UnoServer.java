@@ -3,89 +3,600 @@ package uno;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import org.jetbrains.annotations.NotNull;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Server for one table. Once the players are connected, the table runs as
+ * an actor: lines from the players' connections are sent to its mailbox,
+ * and it handles them in batches on a shared pool, never on two threads at
+ * once. A process can run many tables this way with no thread per table
+ * apart from the threads reading the connections.
+ */
 public class UnoServer {
     private static final Gson GSON = new Gson();
-    private static final boolean DEBUG = true;
+    /**
+     * Whether to print every line sent to the players, which are the full
+     * game data, on the table's thread. Off unless the {@code uno.debug}
+     * system property is true, since the prints serialize every table in
+     * the process on {@code System.out}.
+     */
+    private static final boolean DEBUG = Boolean.getBoolean("uno.debug");
+    /**
+     * Message telling the table to check whether it can make progress
+     * without input from the players, such as by letting a bot move.
+     */
+    private static final Message WAKE_UP = new Message(-1, -1, null, 0);
+    /**
+     * Default time to collect competing Uno challenges for.
+     */
+    private static final Duration DEFAULT_ARBITRATION_WINDOW =
+        Duration.ofMillis(10);
+    /**
+     * Longest allowed time to collect competing Uno challenges for, which
+     * bounds the latency arbitration adds to a challenge.
+     */
+    static final Duration MAX_ARBITRATION_WINDOW = Duration.ofMillis(100);
+    /**
+     * Maximum length of a line from a client in bytes. Every valid message
+     * is far shorter.
+     */
+    private static final int MAX_FRAME_LENGTH = 1024;
+    /**
+     * Lines each client may send per second on average. Reading a client
+     * that sends faster is delayed, so it is slowed down by TCP flow
+     * control instead of using up the table's time.
+     */
+    private static final double FRAMES_PER_SECOND = 200;
+    /**
+     * Lines each client may send at once before being slowed down.
+     */
+    private static final double FRAME_BURST = 400;
+    /**
+     * Maximum number of lines from each client waiting in the table's
+     * mailbox. Reading a client stops while it has this many.
+     */
+    private static final int MAX_PENDING_FRAMES = 16;
+    /**
+     * Number of actions between snapshots sent to the standby server.
+     */
+    private static final int SNAPSHOT_INTERVAL = 64;
+    /**
+     * Default time a client may be silent before it is pinged.
+     */
+    private static final Duration DEFAULT_PING_INTERVAL =
+        Duration.ofSeconds(5);
+    /**
+     * Default time a client may be silent before its connection is
+     * dropped.
+     */
+    private static final Duration DEFAULT_PING_TIMEOUT =
+        Duration.ofSeconds(15);
+    private static final String PING = "{\"type\":\"ping\"}";
 
     private final int numPlayers;
+    private final int numBots;
     private final ServerSocket serverSocket;
     private final List<Socket> sockets;
-    private final List<BufferedReader> readers;
+    private final List<FrameReader> readers;
+    /**
+     * Permits for lines in the table's mailbox, one set per seat.
+     */
+    private final Semaphore[] pendingFrames;
     private final List<PrintWriter> writers;
-    private final BlockingQueue<String> input;
     private final ExecutorService executor;
     private final AtomicBoolean errorFlag;
     private final Game game;
+    private final long seed;
+    private final int botSeats;
+    private final boolean isRecovered;
+    private final Bot[] bots;
+    private final int[] actions;
+    /**
+     * Receipt time of each seat's competing Uno challenge or late call.
+     */
+    private final long[] contestTimes;
+    /**
+     * Action of each seat's competing Uno challenge or late call.
+     */
+    private final int[] contestActions;
+
+    /**
+     * Liveness of each player's connection, or null for bot seats.
+     */
+    private final HeartbeatTimer.Heartbeat[] heartbeats;
+
+    private MoveJournal journal;
+    private ReplicationSender replication;
+    private long tableId;
+    /**
+     * Number of actions replicated since the last snapshot.
+     */
+    private int actionsSinceSnapshot;
+    private Path replayFile;
+    private RoundArchiveWriter archive;
+    private RatingService ratings;
+    private String[] names;
+    /**
+     * Every action applied to the game, for the replay file.
+     */
+    private int[] history;
+    private int historySize;
+    private ForkJoinPool pool;
+    private Table table;
+    /**
+     * Completed when the game is over.
+     */
+    private CompletableFuture<Void> finished;
+    /**
+     * What the table is waiting for, only used by the table actor after
+     * the table starts.
+     */
+    private Phase phase;
+    /**
+     * Bit mask of the seats the table is waiting for in the current phase.
+     */
+    private int awaitedSeats;
+    /**
+     * Whether to prepare the game data for the active player's possible
+     * moves while they think.
+     */
+    private boolean speculative;
+    /**
+     * Game data being prepared for the active player's possible moves, or
+     * null if there is none.
+     */
+    private Speculation speculation;
+    /**
+     * Prepared game data to send for the move just made, or null to
+     * serialize the game.
+     */
+    private String preparedFrame;
+    /**
+     * Time in nanoseconds to collect competing Uno challenges for, or 0 to
+     * apply the first to reach the table.
+     */
+    private long arbitrationWindow = DEFAULT_ARBITRATION_WINDOW.toNanos();
+    /**
+     * Time at which the competing Uno challenges are resolved.
+     */
+    private long arbitrationDeadline;
+    /**
+     * Bit mask of the seats with a competing Uno challenge or late call.
+     */
+    private int contestants;
+    /**
+     * Whether the bots have answered the open Uno contest.
+     */
+    private boolean botsAnswered;
+    private HeartbeatTimer heartbeatTimer = HeartbeatTimer.common();
+    private Duration pingInterval = DEFAULT_PING_INTERVAL;
+    private Duration pingTimeout = DEFAULT_PING_TIMEOUT;
 
     public UnoServer(int port, int numPlayers) {
-        if (numPlayers < Game.MIN_PLAYERS || numPlayers > Game.MAX_PLAYERS) {
+        this(port, numPlayers, 0);
+    }
+
+    public UnoServer(int port, int numPlayers, int numBots) {
+        this(port, numPlayers, numBots, new IsmctsBot());
+    }
+
+    UnoServer(int port, int numPlayers, int numBots, @NotNull Bot bot) {
+        this(openServerSocket(port), numPlayers, new Random().nextLong(),
+            chooseBotSeats(numPlayers, numBots), false, bot);
+    }
+
+    /**
+     * Create a server for players who are already connected, such as a
+     * table of a {@code TableHost}. The server does not listen on a port.
+     *
+     * @param numPlayers  number of players
+     * @param numBots     number of bots
+     * @param bot         bot to play the bot seats
+     * @param connections connections of the other players, one each
+     */
+    UnoServer(int numPlayers, int numBots, @NotNull Bot bot,
+              @NotNull List<Socket> connections) {
+        this(numPlayers, numBots, bot, connections, new Random().nextLong());
+    }
+
+    /**
+     * Create a server for players who are already connected, with the game
+     * dealt from a given seed so that it can be played again.
+     *
+     * @param numPlayers  number of players
+     * @param numBots     number of bots
+     * @param bot         bot to play the bot seats
+     * @param connections connections of the other players, one each
+     * @param seed        seed of the game
+     */
+    UnoServer(int numPlayers, int numBots, @NotNull Bot bot,
+              @NotNull List<Socket> connections, long seed) {
+        this(null, numPlayers, seed, chooseBotSeats(numPlayers, numBots),
+            false, bot);
+        if (connections.size() != numPlayers - numBots) {
             throw new IllegalArgumentException("Invalid number of players.");
         }
-        try {
-            serverSocket = new ServerSocket(port);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        sockets.addAll(connections);
+    }
+
+    /**
+     * Create a server that resumes a game rebuilt from a journal or
+     * mirrored by a standby server, for players who have rejoined their
+     * seats, such as a table resumed by a {@code TableHost}. The game
+     * continues from where it stopped.
+     *
+     * @param table       the rebuilt game
+     * @param bot         bot to play the bot seats
+     * @param connections connections of the other players, in the order of
+     *                    their seats
+     */
+    UnoServer(@NotNull MoveJournal.RecoveredTable table, @NotNull Bot bot,
+              @NotNull List<Socket> connections) {
+        this(null, table.game(), table.seed(), table.botSeats(), true, bot);
+        if (connections.size() != numPlayers - numBots) {
+            throw new IllegalArgumentException("Invalid number of players.");
         }
-        this.numPlayers = numPlayers;
+        sockets.addAll(connections);
+        tableId = table.id();
+        history = Arrays.copyOf(table.actions(),
+            Math.max(64, table.actions().length));
+        historySize = table.actions().length;
+    }
+
+    private UnoServer(ServerSocket serverSocket, int numPlayers, long seed,
+                      int botSeats, boolean isRecovered, Bot bot) {
+        this(serverSocket, new Game(numPlayers, new SnapshotRandom(seed)),
+            seed, botSeats, isRecovered, bot);
+    }
+
+    private UnoServer(ServerSocket serverSocket, Game game, long seed,
+                      int botSeats, boolean isRecovered, Bot bot) {
+        this.serverSocket = serverSocket;
+        this.numPlayers = game.numPlayers;
+        this.numBots = Integer.bitCount(botSeats);
         sockets = new ArrayList<>();
         readers = new ArrayList<>();
+        pendingFrames = new Semaphore[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            pendingFrames[i] = new Semaphore(MAX_PENDING_FRAMES);
+        }
         writers = new ArrayList<>();
-        input = new LinkedBlockingQueue<>();
-        executor = Executors.newFixedThreadPool(numPlayers);
+        executor = Executors.newFixedThreadPool(
+            Math.max(1, numPlayers - numBots));
         errorFlag = new AtomicBoolean(false);
-        game = new Game(numPlayers);
+        this.game = game;
+        this.seed = seed;
+        this.botSeats = botSeats;
+        this.isRecovered = isRecovered;
+        bots = new Bot[numPlayers];
+        for (int i = 0; i < numPlayers; i++) {
+            if ((botSeats & (1 << i)) != 0) {
+                bots[i] = bot;
+            }
+        }
+        actions = new int[GameAction.MAX_ACTIONS];
+        contestTimes = new long[numPlayers];
+        contestActions = new int[numPlayers];
+        heartbeats = new HeartbeatTimer.Heartbeat[numPlayers];
+        history = new int[64];
+        pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Record every move of this table in a journal, so that the game can be
+     * resumed if the server stops. Must be called before {@code start()}.
+     *
+     * @param journal the journal, which a resumed game must have been
+     *                rebuilt from
+     * @param tableId id of this table in the journal
+     */
+    void setJournal(@NotNull MoveJournal journal, long tableId) {
+        if (isRecovered && tableId != this.tableId) {
+            throw new IllegalArgumentException("Table id does not match.");
+        }
+        this.journal = journal;
+        this.tableId = tableId;
+    }
+
+    /**
+     * Stream every move of this table to a standby server, so that it can
+     * take over the table if this server stops. Must be called before
+     * {@code start()}, and after {@code setJournal} if there is a journal.
+     *
+     * @param replication the connection to the standby
+     * @param tableId     id of this table on the standby, which must be the
+     *                    table's id in the journal if there is one
+     */
+    void setReplication(@NotNull ReplicationSender replication,
+                        long tableId) {
+        if ((journal != null || isRecovered) && tableId != this.tableId) {
+            throw new IllegalArgumentException("Table id does not match.");
+        }
+        this.replication = replication;
+        this.tableId = tableId;
+    }
+
+    /**
+     * Record the game in a replay file when it is over. Must be called
+     * before {@code start()}.
+     *
+     * @param replayFile path of the replay file
+     */
+    void setReplayFile(@NotNull Path replayFile) {
+        this.replayFile = replayFile;
+    }
+
+    /**
+     * Record the rounds of the game in a round archive when the game is
+     * over. Must be called before {@code start()}.
+     *
+     * @param archive the archive, which may be shared with other tables
+     */
+    void setArchive(@NotNull RoundArchiveWriter archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Update the players' ratings when the game is over. Must be called
+     * before {@code start()}.
+     *
+     * @param ratings the rating service, which may be shared with other
+     *                tables
+     */
+    void setRatings(@NotNull RatingService ratings) {
+        this.ratings = ratings;
+    }
+
+    /**
+     * While a human player thinks, apply each of their legal moves to a copy
+     * of the game on the pool and serialize the result, so that the game
+     * data can be sent as soon as their move arrives. Must be called before
+     * {@code start()}.
+     *
+     * @param speculative whether to prepare the game data
+     */
+    void setSpeculative(boolean speculative) {
+        this.speculative = speculative;
+    }
+
+    /**
+     * Set how long Uno challenges and late Uno calls are collected for
+     * once the first arrives. When the window closes, the one received
+     * first is applied, so the winner depends on when each line arrived
+     * and not on which reader thread woke up first. The window closes
+     * early once every human player has answered. Must be called before
+     * {@code start()}.
+     *
+     * @param window the window, or zero to apply the first to reach the
+     *               table
+     * @throws IllegalArgumentException if the window is negative or longer
+     *                                  than {@code MAX_ARBITRATION_WINDOW}
+     */
+    void setArbitrationWindow(@NotNull Duration window) {
+        if (window.isNegative()
+            || window.compareTo(MAX_ARBITRATION_WINDOW) > 0) {
+            throw new IllegalArgumentException("Invalid arbitration window.");
+        }
+        arbitrationWindow = window.toNanos();
+    }
+
+    /**
+     * Set how long a player's connection may be silent before it is
+     * pinged, and before it is taken for dead and dropped, which ends the
+     * game. Clients answer pings, so a live connection is never silent for
+     * long. Must be called before {@code start()}.
+     *
+     * @param interval time before a silent connection is pinged
+     * @param timeout  time before a silent connection is dropped
+     * @throws IllegalArgumentException if the interval is not positive or
+     *                                  the timeout is shorter than it
+     */
+    void setHeartbeat(@NotNull Duration interval, @NotNull Duration timeout) {
+        if (interval.isNegative() || interval.isZero()
+            || timeout.compareTo(interval) < 0) {
+            throw new IllegalArgumentException("Invalid heartbeat.");
+        }
+        pingInterval = interval;
+        pingTimeout = timeout;
+    }
+
+    /**
+     * Track the players' connections with a timer other than the common
+     * timer. Must be called before {@code start()}.
+     *
+     * @param heartbeatTimer the timer, which may be shared with other
+     *                       tables
+     */
+    void setHeartbeatTimer(@NotNull HeartbeatTimer heartbeatTimer) {
+        this.heartbeatTimer = heartbeatTimer;
+    }
+
+    /**
+     * Run the table on a pool other than the common pool. Must be called
+     * before {@code start()}.
+     *
+     * @param pool the pool, which may be shared with other tables
+     */
+    void setPool(@NotNull ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @param port port to listen on
+     * @return a server socket listening on the port
+     */
+    private static ServerSocket openServerSocket(int port) {
+        try {
+            return new ServerSocket(port);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
     }
 
+    /**
+     * Choose random seats for bots.
+     *
+     * @param numPlayers number of players
+     * @param numBots    number of bots
+     * @return bit mask of the seats taken by bots
+     */
+    private static int chooseBotSeats(int numPlayers, int numBots) {
+        if (numPlayers < Game.MIN_PLAYERS || numPlayers > Game.MAX_PLAYERS) {
+            throw new IllegalArgumentException("Invalid number of players.");
+        }
+        if (numBots < 0 || numBots > numPlayers) {
+            throw new IllegalArgumentException("Invalid number of bots.");
+        }
+        List<Integer> seats = new ArrayList<>();
+        for (int i = 0; i < numPlayers; i++) {
+            seats.add(i);
+        }
+        Collections.shuffle(seats);
+        int botSeats = 0;
+        for (int i = 0; i < numBots; i++) {
+            botSeats |= 1 << seats.get(i);
+        }
+        return botSeats;
+    }
+
+    /**
+     * Wait for the players to connect, then play the game until it is over.
+     */
     public void start() {
         try {
-            waitForConnections();
-            sendIds();
-            nameHandshake();
-            awaitConfirmation();
-            gameLoop();
-            executor.shutdown();
-        } catch (IOException | InterruptedException e) {
+            startAsync().join();
+        } catch (IOException e) {
             throw new RuntimeException(e);
+        } catch (CompletionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
         }
     }
 
-    private void waitForConnections() throws IOException {
+    /**
+     * Wait for the players to connect, then start the game on the pool
+     * without waiting for it to finish.
+     *
+     * @return a future completed when the game is over
+     * @throws IOException if a connection fails or the journal cannot be
+     *                     written
+     */
+    CompletableFuture<Void> startAsync() throws IOException {
+        waitForConnections();
+        if (journal != null && !isRecovered) {
+            journal.create(tableId, numPlayers, seed, botSeats);
+        }
+        if (replication != null) {
+            if (isRecovered) {
+                // the standby may not have seen the start of the game
+                replicateSnapshot();
+            } else {
+                replication.create(tableId, numPlayers, seed, botSeats);
+            }
+        }
+        sendIds();
+        finished = new CompletableFuture<>();
+        table = new Table(pool);
+        names = new String[numPlayers];
         for (int i = 0; i < numPlayers; i++) {
-            sockets.add(serverSocket.accept());
+            if (bots[i] != null) {
+                names[i] = "Bot " + (i + 1);
+            }
+        }
+        phase = Phase.NAMES;
+        awaitedSeats = humanSeats();
+        startReaders();
+        table.send(WAKE_UP);
+        return finished;
+    }
+
+    private void waitForConnections() throws IOException {
+        // connections given to the constructor take their seats first
+        List<Socket> accepted = new ArrayList<>(sockets);
+        sockets.clear();
+        while (accepted.size() < numPlayers - numBots) {
+            accepted.add(serverSocket.accept());
         }
-        Collections.shuffle(sockets);
-        for (Socket socket : sockets) {
-            readers.add(new BufferedReader(
-                new InputStreamReader(socket.getInputStream())));
+        // the players of a resumed game rejoin their own seats, in order
+        if (!isRecovered) {
+            Collections.shuffle(accepted);
+        }
+        for (int i = 0; i < numPlayers; i++) {
+            // bots take their seats without a socket
+            Socket socket = (bots[i] == null) ? accepted.remove(0) : null;
+            sockets.add(socket);
+            if (socket == null) {
+                readers.add(null);
+                writers.add(null);
+                continue;
+            }
+            readers.add(
+                new FrameReader(socket.getInputStream(), MAX_FRAME_LENGTH));
             writers.add(new PrintWriter(
                 new OutputStreamWriter(socket.getOutputStream()), true));
         }
-        for (BufferedReader reader : readers) {
+    }
+
+    /**
+     * Start a thread for each connection that parses the lines it reads and
+     * sends them to the table, and track the connection's liveness. A
+     * connection that sends a line that is too long, or that is silent for
+     * longer than the ping timeout, is dropped, and the table is told.
+     */
+    private void startReaders() {
+        for (int i = 0; i < numPlayers; i++) {
+            int sender = i;
+            FrameReader reader = readers.get(i);
+            if (reader == null) {
+                continue;
+            }
+            Socket socket = sockets.get(i);
+            PrintWriter writer = writers.get(i);
+            heartbeats[i] = heartbeatTimer.register(pingInterval, pingTimeout,
+                () -> pool.execute(() -> writer.println(PING)),
+                () -> {
+                    System.out.println("Player " + (sender + 1)
+                        + " timed out.");
+                    closeQuietly(socket);
+                });
+            TokenBucket bucket =
+                new TokenBucket(FRAMES_PER_SECOND, FRAME_BURST);
+            ClientMessage message = new ClientMessage();
             executor.submit(() -> {
                 try {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        input.add(line);
+                    try {
+                        readFrames(sender, reader, bucket, message);
+                    } catch (IOException e) {
+                        errorFlag.set(true);
                     }
-                } catch (IOException e) {
-                    errorFlag.set(true);
+                    pendingFrames[sender].acquire();
+                    table.send(new Message(sender, Message.DISCONNECT, null,
+                        System.nanoTime()));
+                } catch (InterruptedException e) {
+                    // the table is over
                 }
             });
         }
@@ -94,124 +605,755 @@ public class UnoServer {
     private void sendIds() {
         for (int i = 0; i < numPlayers; i++) {
             PrintWriter writer = writers.get(i);
+            if (writer == null) {
+                continue;
+            }
             JsonObject idJson = new JsonObject();
             idJson.add("id", new JsonPrimitive(i));
+            if (journal != null || replication != null) {
+                // lets the player rejoin their seat if the server stops
+                idJson.add("table", new JsonPrimitive(tableId));
+            }
             writer.println(idJson);
         }
     }
 
-    private void nameHandshake() throws InterruptedException {
-        String[] names = new String[numPlayers];
-        // get names
-        for (int i = 0; i < numPlayers; i++) {
-            JsonObject nameJson = GSON.fromJson(input.take(), JsonObject.class);
-            if (DEBUG) {
-                System.out.println(nameJson);
+    /**
+     * Send the lines read from a connection to the table until it is
+     * closed. Pongs only count as signs of life.
+     */
+    private void readFrames(int sender, FrameReader reader,
+                            TokenBucket bucket, ClientMessage message)
+        throws IOException, InterruptedException {
+        while (reader.nextFrame()) {
+            long received = System.nanoTime();
+            heartbeats[sender].heard(received);
+            bucket.acquire();
+            boolean isObject = message.parse(reader.getBuffer(),
+                reader.getFrameStart(), reader.getFrameLength());
+            if (isObject && message.isPong()) {
+                continue;
             }
-            int id = nameJson.get("id").getAsInt();
-            String name = nameJson.get("name").getAsString();
-            names[id] = name;
+            int action = !isObject ? -1
+                : message.isConfirm() ? Message.CONFIRM
+                : message.toAction(sender);
+            pendingFrames[sender].acquire();
+            table.send(new Message(sender, action, message.getName(),
+                received));
         }
-        // send name list
-        JsonObject nameListJson = new JsonObject();
-        nameListJson.add("names", new JsonPrimitive(GSON.toJson(names)));
-        for (PrintWriter writer : writers) {
-            writer.println(nameListJson);
+    }
+
+    /**
+     * Handle a message sent to the table.
+     *
+     * @param message the message
+     */
+    private void receive(Message message) {
+        if (message.sender() >= 0) {
+            pendingFrames[message.sender()].release();
         }
-        if (DEBUG) {
-            System.out.println(nameListJson);
+        if (phase == Phase.OVER) {
+            return;
+        }
+        try {
+            if (message.sender() >= 0) {
+                handleMessage(message);
+            } else if (phase == Phase.BOT_MOVE) {
+                if (moveBots()) {
+                    nextTurn();
+                } else {
+                    phase = Phase.MOVE;
+                }
+            } else if (phase == Phase.ARBITRATE && !botsAnswered) {
+                askBots();
+            } else if (phase == Phase.ARBITRATE
+                && System.nanoTime() - arbitrationDeadline >= 0) {
+                // a wake-up left over from an earlier arbitration can come
+                // before the deadline, so it is checked
+                closeContest();
+            }
+            advance();
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            phase = Phase.OVER;
+            // the other players would otherwise wait for the table forever
+            cancelHeartbeats();
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+            executor.shutdown();
+            finished.completeExceptionally(e);
         }
     }
 
-    private void gameLoop() throws InterruptedException {
-        while (true) {
-            game.startRound();
-            while (game.getState() != GameState.ROUND_OVER) {
-                sendGameData();
-                awaitConfirmation();
-                sendStart();
-                awaitMove();
+    /**
+     * Handle a message from a player.
+     *
+     * @param message the message
+     */
+    private void handleMessage(Message message)
+        throws IOException, InterruptedException {
+        int sender = message.sender();
+        if (message.action() == Message.DISCONNECT) {
+            if (!game.isGameOver()) {
+                String name = (names[sender] != null) ? names[sender]
+                    : "Player " + (sender + 1);
+                throw new IOException(name + " disconnected.");
+            }
+            // a player may leave once the game is over
+            awaitedSeats &= ~(1 << sender);
+            return;
+        }
+        switch (phase) {
+        case NAMES -> {
+            names[sender] = (message.name() != null) ? message.name()
+                : "Player " + (sender + 1);
+            awaitedSeats &= ~(1 << sender);
+        }
+        case CONFIRM_START, CONFIRM_MOVE, CONFIRM_ROUND_OVER -> {
+            if (message.action() == Message.CONFIRM) {
+                awaitedSeats &= ~(1 << sender);
+            }
+        }
+        case MOVE -> {
+            int action = message.action();
+            if (arbitrationWindow > 0 && isContest(sender, action)) {
+                startArbitration(message);
+                return;
+            }
+            applyMove(sender, action);
+        }
+        case ARBITRATE -> {
+            int action = message.action();
+            if (isContest(sender, action)) {
+                if ((contestants & (1 << sender)) == 0) {
+                    addContestant(sender, action, message.received());
+                    if (isContestComplete()) {
+                        arbitrate();
+                    }
+                }
+            } else if (contestants == 0) {
+                // nobody has contested yet, so the move still counts
+                applyMove(sender, action);
+            }
+            // other moves are dropped, since the game is about to change
+        }
+        default -> {
+            // lines sent while a bot moves are dropped
+        }
+        }
+    }
+
+    /**
+     * Apply a move from a player and send the game on, or tell the player
+     * why it was rejected.
+     *
+     * @param player index of the player
+     * @param action the move
+     */
+    private void applyMove(int player, int action)
+        throws IOException, InterruptedException {
+        int previousHistorySize = historySize;
+        MoveResult result = (action < 0) ? MoveResult.INVALID_ARGUMENT
+            : applyAction(player, action);
+        if (result == MoveResult.OK) {
+            preparedFrame =
+                findPreparedFrame(player, action, previousHistorySize);
+            nextTurn();
+        } else {
+            sendError(player, result);
+        }
+    }
+
+    /**
+     * @param player index of a player
+     * @param action an action
+     * @return true if the action is a legal Uno challenge or late Uno
+     * call, which compete to be applied, and false otherwise
+     */
+    private boolean isContest(int player, int action) {
+        if (action < 0) {
+            return false;
+        }
+        int type = GameAction.type(action);
+        return (type == GameAction.CHALLENGE_UNO
+            || type == GameAction.CALL_LATE_UNO)
+            && game.validate(player, action) == MoveResult.OK;
+    }
+
+    /**
+     * Start collecting competing Uno challenges from the players, after
+     * the bots have already answered.
+     *
+     * @param message the first challenge or late call
+     */
+    private void startArbitration(Message message) {
+        phase = Phase.ARBITRATE;
+        contestants = 0;
+        botsAnswered = true;
+        addContestant(message.sender(), message.action(), message.received());
+    }
+
+    /**
+     * Open an Uno contest at a table with bots. The bots answer on the
+     * next wake-up, so a player whose line reaches the table before then
+     * is ahead of them.
+     */
+    private void openContest() {
+        phase = Phase.ARBITRATE;
+        contestants = 0;
+        botsAnswered = false;
+        table.send(WAKE_UP);
+    }
+
+    /**
+     * Ask every bot for its answer to the open Uno contest, and enter the
+     * challenges and late calls like those of the players. All bots answer
+     * on the same wake-up, so none of them is timed behind another table's
+     * turn.
+     */
+    private void askBots() throws IOException, InterruptedException {
+        botsAnswered = true;
+        for (int player = 0; player < numPlayers; player++) {
+            if (bots[player] != null
+                && (contestants & (1 << player)) == 0) {
+                int action = bots[player].chooseAction(game, player);
+                if (isContest(player, action)) {
+                    addContestant(player, action, System.nanoTime());
+                }
             }
-            sendGameData();
-            awaitConfirmation();
-            if (game.isGameOver()) {
-                break;
+        }
+        if (contestants != 0) {
+            if (isContestComplete()) {
+                arbitrate();
             }
-            game.resetRound();
+        } else if (bots[game.getActivePlayer()] != null
+            && arbitrationWindow > 0) {
+            // give the players the window to contest before the bot moves
+            arbitrationDeadline = System.nanoTime() + arbitrationWindow;
+            wakeUpAt(arbitrationDeadline);
+        } else {
+            awaitMove();
         }
     }
 
-    private void awaitConfirmation() throws InterruptedException {
+    /**
+     * Enter a competing Uno challenge or late call, and wake the table up
+     * when the window after the first one closes.
+     *
+     * @param player index of the player or bot
+     * @param action the challenge or late call
+     * @param time   time at which it reached the table
+     */
+    private void addContestant(int player, int action, long time) {
+        if (contestants == 0) {
+            arbitrationDeadline = time + arbitrationWindow;
+            wakeUpAt(arbitrationDeadline);
+        }
+        contestants |= 1 << player;
+        contestTimes[player] = time;
+        contestActions[player] = action;
+    }
+
+    /**
+     * @return true if the open Uno contest can be resolved before its
+     * window closes, and false otherwise
+     */
+    private boolean isContestComplete() {
+        // bots that did not contest when asked have declined
+        return arbitrationWindow == 0 || (botsAnswered
+            && (contestants | botSeats) == (1 << numPlayers) - 1);
+    }
+
+    /**
+     * Resolve the open Uno contest once its window has closed, or let the
+     * bot whose turn it is move if nobody contested.
+     */
+    private void closeContest() throws IOException, InterruptedException {
+        if (contestants != 0) {
+            arbitrate();
+        } else {
+            awaitMove();
+        }
+    }
+
+    /**
+     * Send the table a wake-up message at a given time.
+     *
+     * @param time the time, as given by {@code System.nanoTime()}
+     */
+    private void wakeUpAt(long time) {
+        long delay = time - System.nanoTime();
+        CompletableFuture.delayedExecutor(Math.max(0, delay),
+            TimeUnit.NANOSECONDS).execute(() -> table.send(WAKE_UP));
+    }
+
+    /**
+     * Apply the competing Uno challenge or late call received first. Ties
+     * go to the player who missed calling Uno, then to the next players in
+     * seat order.
+     */
+    private void arbitrate() throws IOException, InterruptedException {
+        int offender = game.getLastPlayed();
+        int winner = -1;
         for (int i = 0; i < numPlayers; i++) {
-            while (true) {
-                String line = input.take();
-                JsonObject json = GSON.fromJson(line, JsonObject.class);
-                if (DEBUG) {
-                    System.out.println(json);
+            int player = (offender + i) % numPlayers;
+            if ((contestants & (1 << player)) != 0 && (winner == -1
+                || contestTimes[player] - contestTimes[winner] < 0)) {
+                winner = player;
+            }
+        }
+        contestants = 0;
+        phase = Phase.MOVE;
+        int previousHistorySize = historySize;
+        int action = contestActions[winner];
+        if (applyAction(winner, action) != MoveResult.OK) {
+            throw new IllegalStateException("Arbitrated move is illegal.");
+        }
+        preparedFrame = findPreparedFrame(winner, action, previousHistorySize);
+        nextTurn();
+    }
+
+    /**
+     * Move on through every phase whose replies have all arrived.
+     */
+    private void advance() throws IOException, InterruptedException {
+        while (awaitedSeats == 0) {
+            switch (phase) {
+            case NAMES -> {
+                // send name list
+                JsonObject nameListJson = new JsonObject();
+                nameListJson.add("names",
+                    new JsonPrimitive(GSON.toJson(names)));
+                broadcast(nameListJson);
+                awaitConfirmation(Phase.CONFIRM_START);
+            }
+            case CONFIRM_START -> nextTurn();
+            case CONFIRM_MOVE -> {
+                sendStart();
+                if (game.canChallengeUno() && botSeats != 0) {
+                    // the bots contest a missing Uno call like the players
+                    openContest();
+                } else {
+                    awaitMove();
                 }
-                if (json.get("move").getAsString().equals("confirm")) {
-                    break;
+                return;
+            }
+            case CONFIRM_ROUND_OVER -> {
+                if (game.isGameOver()) {
+                    finish();
+                    return;
                 }
+                applyAction(-1, GameAction.of(GameAction.RESET_ROUND));
+                nextTurn();
+            }
+            default -> {
+                return;
+            }
+            }
+        }
+    }
+
+    /**
+     * Wait for the active player to move, or let a bot move.
+     */
+    private void awaitMove() {
+        phase = Phase.MOVE;
+        if (canBotMove()) {
+            // one bot move per message, so other tables get a turn
+            phase = Phase.BOT_MOVE;
+            table.send(WAKE_UP);
+        } else if (speculative) {
+            speculate();
+        }
+    }
+
+    /**
+     * Start the round if needed and send the game to the players.
+     */
+    private void nextTurn() throws IOException, InterruptedException {
+        if (game.getState() == GameState.ROUND_START) {
+            preparedFrame = null;
+            applyAction(-1, GameAction.of(GameAction.START_ROUND));
+        }
+        sendGameData();
+        awaitConfirmation(game.getState() == GameState.ROUND_OVER
+            ? Phase.CONFIRM_ROUND_OVER : Phase.CONFIRM_MOVE);
+    }
+
+    /**
+     * Wait for every player to confirm.
+     *
+     * @param phase the phase of the confirmation
+     */
+    private void awaitConfirmation(Phase phase) {
+        this.phase = phase;
+        awaitedSeats = humanSeats();
+    }
+
+    /**
+     * @return bit mask of the seats not taken by bots
+     */
+    private int humanSeats() {
+        return ((1 << numPlayers) - 1) & ~botSeats;
+    }
+
+    /**
+     * Record the finished game and complete the future returned by
+     * {@code startAsync}.
+     */
+    private void finish() throws IOException, InterruptedException {
+        phase = Phase.OVER;
+        if (replayFile != null) {
+            ReplayFile.write(replayFile, numPlayers, seed, history,
+                historySize, ReplayFile.DEFAULT_INTERVAL);
+        }
+        if (archive != null) {
+            archive.recordGame(numPlayers, seed, history, historySize);
+        }
+        if (ratings != null) {
+            recordRatings();
+        }
+        if (journal != null) {
+            journal.awaitDurable(journal.finish(tableId));
+        }
+        if (replication != null) {
+            replication.finish(tableId);
+        }
+        cancelHeartbeats();
+        executor.shutdown();
+        finished.complete(null);
+    }
+
+    /**
+     * Rate the human players of the finished game against each other. Bots
+     * are left out: every bot in a seat shares its name at every table,
+     * and a player could take that name.
+     */
+    private void recordRatings() {
+        int numHumans = numPlayers - numBots;
+        String[] humanNames = new String[numHumans];
+        int[] humanScores = new int[numHumans];
+        int[][] scores = game.getScores();
+        int j = 0;
+        for (int i = 0; i < numPlayers; i++) {
+            if (bots[i] == null) {
+                humanNames[j] = names[i];
+                humanScores[j++] = scores[i][3];
             }
         }
+        // players are rated by name, so a game with repeated names is not
+        if (numHumans >= 2
+            && Arrays.stream(humanNames).distinct().count() == numHumans) {
+            ratings.recordGame(humanNames, humanScores);
+        }
+    }
+
+    private void cancelHeartbeats() {
+        for (HeartbeatTimer.Heartbeat heartbeat : heartbeats) {
+            if (heartbeat != null) {
+                heartbeat.cancel();
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // the connection is being dropped anyway
+        }
+    }
+
+    /**
+     * Apply an action to the game and, if there is a journal, wait until it
+     * is recorded. The action is also replicated to the standby server, if
+     * there is one, without waiting.
+     *
+     * @param player index of the player making the move, or -1 for round
+     *               actions
+     * @param action the action, encoded as described in {@code GameAction}
+     * @return the result of validating the move
+     */
+    private MoveResult applyAction(int player, int action)
+        throws IOException, InterruptedException {
+        MoveResult result;
+        if (player == -1) {
+            game.apply(action);
+            result = MoveResult.OK;
+        } else {
+            result = game.tryApply(player, action);
+        }
+        if (result != MoveResult.OK) {
+            return result;
+        }
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, 2 * historySize);
+        }
+        history[historySize++] = action;
+        if (journal != null) {
+            journal.awaitDurable(journal.append(tableId, player, action));
+        }
+        if (replication != null) {
+            replication.append(tableId, player, action);
+            if (++actionsSinceSnapshot == SNAPSHOT_INTERVAL) {
+                replicateSnapshot();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Send a snapshot of the game to the standby server.
+     */
+    private void replicateSnapshot() {
+        ByteBuffer snapshot = ByteBuffer.allocate(Game.MAX_SNAPSHOT_SIZE);
+        game.writeSnapshot(snapshot);
+        snapshot.flip();
+        replication.snapshot(tableId, seed, botSeats, snapshot);
+        actionsSinceSnapshot = 0;
     }
 
     private void sendGameData() {
+        String frame = (preparedFrame != null) ? preparedFrame
+            : gameFrame(game);
+        preparedFrame = null;
+        speculation = null;
+        broadcast(frame);
+    }
+
+    /**
+     * @param game a game
+     * @return the line sending the game's data to the players
+     */
+    private static String gameFrame(Game game) {
         JsonObject gameJson = new JsonObject();
         gameJson.add("type", new JsonPrimitive("game"));
         gameJson.add("gameData",
-            new JsonPrimitive(GSON.toJson(new GameData(game))));
-        for (PrintWriter writer : writers) {
-            writer.println(gameJson);
+            new JsonPrimitive(GameDataJson.GSON.toJson(new GameData(game))));
+        return gameJson.toString();
+    }
+
+    /**
+     * Start preparing the game data for each legal move of the active
+     * player. The game is copied through a snapshot, so a copy draws the
+     * same cards the game will.
+     */
+    private void speculate() {
+        int player = game.getActivePlayer();
+        int[] moves = Arrays.copyOf(actions,
+            game.getLegalActions(player, actions));
+        ByteBuffer snapshot = ByteBuffer.allocate(Game.MAX_SNAPSHOT_SIZE);
+        game.writeSnapshot(snapshot);
+        snapshot.flip();
+        CompletableFuture<String[]> frames = CompletableFuture.supplyAsync(
+            () -> {
+                String[] result = new String[moves.length];
+                for (int i = 0; i < moves.length; i++) {
+                    Game copy = new Game(snapshot.duplicate());
+                    copy.apply(moves[i]);
+                    result[i] = gameFrame(copy);
+                }
+                return result;
+            }, pool);
+        speculation = new Speculation(player, historySize, moves, frames);
+    }
+
+    /**
+     * Find the game data prepared for a move that was just made.
+     *
+     * @param player              index of the player who made the move
+     * @param action              the move
+     * @param previousHistorySize number of actions applied before the move
+     * @return the prepared line, or null if the move was not foreseen or
+     * its line is not ready
+     */
+    private String findPreparedFrame(int player, int action,
+                                     int previousHistorySize) {
+        if (speculation == null || speculation.player() != player
+            || speculation.historySize() != previousHistorySize
+            || !speculation.frames().isDone()
+            || speculation.frames().isCompletedExceptionally()) {
+            return null;
         }
-        if (DEBUG) {
-            System.out.println(gameJson);
+        String[] frames = speculation.frames().join();
+        for (int i = 0; i < frames.length; i++) {
+            if (speculation.moves()[i] == action) {
+                return frames[i];
+            }
         }
+        return null;
     }
 
     private void sendStart() {
         JsonObject startJson = new JsonObject();
         startJson.add("type", new JsonPrimitive("start"));
+        broadcast(startJson);
+    }
+
+    private void broadcast(JsonObject json) {
+        broadcast(json.toString());
+    }
+
+    private void broadcast(String line) {
         for (PrintWriter writer : writers) {
-            writer.println(startJson);
+            if (writer != null) {
+                writer.println(line);
+            }
         }
         if (DEBUG) {
-            System.out.println(startJson);
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * Let a bot make a move if one can. A missing Uno call is contested
+     * before any bot moves, so once the contest has closed only the active
+     * player is left to move.
+     *
+     * @return true if a bot made a move, and false otherwise
+     */
+    private boolean moveBots() throws IOException, InterruptedException {
+        int player = findBotToMove();
+        if (player == -1) {
+            return false;
+        }
+        applyAction(player, bots[player].chooseAction(game, player));
+        return true;
+    }
+
+    /**
+     * @return true if a bot can make a move, and false otherwise
+     */
+    private boolean canBotMove() {
+        return findBotToMove() != -1;
+    }
+
+    /**
+     * @return the index of the bot that {@code moveBots} would let move, or
+     * -1 if no bot can move
+     */
+    private int findBotToMove() {
+        int activePlayer = game.getActivePlayer();
+        if (game.canChallengeUno()) {
+            // the other bots had their say in the contest
+            return (bots[activePlayer] != null) ? activePlayer : -1;
+        }
+        for (int i = 1; i <= numPlayers; i++) {
+            int player = (activePlayer + i) % numPlayers;
+            if (bots[player] != null
+                && game.getLegalActions(player, actions) > 0) {
+                return player;
+            }
         }
+        return -1;
     }
 
-    private void awaitMove() throws InterruptedException {
-        String line = input.take();
-        JsonObject moveJson = GSON.fromJson(line, JsonObject.class);
+    /**
+     * Tell a player that their move was rejected.
+     *
+     * @param player index of the player
+     * @param result the reason the move was rejected
+     */
+    private void sendError(int player, MoveResult result) {
+        JsonObject errorJson = new JsonObject();
+        errorJson.add("type", new JsonPrimitive("error"));
+        errorJson.add("reason", new JsonPrimitive(result.toString()));
+        writers.get(player).println(errorJson);
         if (DEBUG) {
-            System.out.println(moveJson);
-        }
-        String move = moveJson.get("move").getAsString();
-        switch (move) {
-        case "playCard" -> {
-            int index = moveJson.get("index").getAsInt();
-            game.playCard(index);
-        }
-        case "drawCard" -> game.drawCard();
-        case "playDrawnCard" -> {
-            boolean play = moveJson.get("play").getAsBoolean();
-            game.playDrawnCard(play);
-        }
-        case "callUno" -> game.callUno();
-        case "callLateUno" -> game.callLateUno();
-        case "challengeUno" -> {
-            int id = moveJson.get("id").getAsInt();
-            game.challengeUno(id);
-        }
-        case "changeColor" -> {
-            CardColor color = GSON.fromJson(moveJson.get("color").getAsString(),
-                CardColor.class);
-            game.changeColor(color);
-        }
-        case "challengeDrawFour" -> {
-            boolean challenge = moveJson.get("challenge").getAsBoolean();
-            game.challengeDrawFour(challenge);
+            System.out.println(errorJson);
+        }
+    }
+
+    /**
+     * A parsed line received from a client.
+     *
+     * @param sender   index of the player who sent the line
+     * @param action   the move in the line encoded as described in
+     *                 {@code GameAction}, {@code CONFIRM} if the line is a
+     *                 confirmation, {@code DISCONNECT} if the connection
+     *                 was closed, or -1 if it is none of these
+     * @param name     the name in the line, or null if there is none
+     * @param received time the line was read, from {@code System.nanoTime}
+     */
+    private record Message(int sender, int action, String name,
+                           long received) {
+        /**
+         * Action of a confirmation.
+         */
+        static final int CONFIRM = -2;
+        /**
+         * Action of the last message from a connection that was closed.
+         */
+        static final int DISCONNECT = -3;
+    }
+
+    /**
+     * Game data being prepared for the possible moves of a player.
+     *
+     * @param player      index of the player
+     * @param historySize number of actions applied to the game it was
+     *                    prepared from
+     * @param moves       the player's legal moves
+     * @param frames      the line to send after each move, in the same
+     *                    order
+     */
+    private record Speculation(int player, int historySize, int[] moves,
+                               CompletableFuture<String[]> frames) {
+    }
+
+    /**
+     * What a table is waiting for.
+     */
+    private enum Phase {
+        /**
+         * Every player to send their name.
+         */
+        NAMES,
+        /**
+         * Every player to confirm the name list.
+         */
+        CONFIRM_START,
+        /**
+         * Every player to confirm the game data before a move.
+         */
+        CONFIRM_MOVE,
+        /**
+         * Every player to confirm the game data at the end of a round.
+         */
+        CONFIRM_ROUND_OVER,
+        /**
+         * A player to move.
+         */
+        MOVE,
+        /**
+         * A bot to move, on the next wake-up message.
+         */
+        BOT_MOVE,
+        /**
+         * Competing Uno challenges from the players and the bots, until the
+         * arbitration window closes.
+         */
+        ARBITRATE,
+        /**
+         * Nothing, since the game is over.
+         */
+        OVER
+    }
+
+    /**
+     * The actor running the table.
+     */
+    private final class Table extends Actor<Message> {
+        Table(ForkJoinPool pool) {
+            super(pool);
         }
+
+        @Override
+        protected void receive(@NotNull Message message) {
+            UnoServer.this.receive(message);
         }
     }
 }